@@ -0,0 +1,238 @@
+/** The symbols of the sequences whose k-tuples are counted. The
+ *  symbols of an alphabet of size r are numbered from 0 to r-1, in
+ *  increasing order, and a k-tuple is packed into a
+ *  <code>long</code> as a number in base r, the first symbol being
+ *  the most significant. The order of the codes is therefore the
+ *  lexicographic order of the keys. For DNA, r is 4 and the code is
+ *  that of <strong>Kmers.encode</strong>, two bits per base.
+ *
+ *  A character that is not a symbol of the alphabet either stops the
+ *  counting, or, if the alphabet skips them, is stepped over: the
+ *  k-tuples overlapping it are not counted.
+ */
+
+public class Alphabet {
+
+    /** The bases A, C, G, T, in uppercase; any other character stops
+     *  the counting. */
+
+    public static final Alphabet DNA = new Alphabet("DNA", "ACGT", false, false);
+
+    /** The bases A, C, G, T, in either case; the k-tuples overlapping
+     *  any other character, such as N or an IUPAC ambiguity code, are
+     *  skipped. */
+
+    public static final Alphabet DNA_N_SKIP = new Alphabet("DNA_N_SKIP", "ACGT", true, true);
+
+    /** The 20 standard amino acids, in either case; the k-tuples
+     *  overlapping any other character, such as X, B, Z or *, are
+     *  skipped. */
+
+    public static final Alphabet PROTEIN = new Alphabet("PROTEIN", "ACDEFGHIKLMNPQRSTVWY", true, true);
+
+    private final String name;
+    private final String letters; // the symbols, in increasing order
+    private final boolean skips; // true to skip the other characters
+    private final byte[] indices; // the number of each ASCII character, -1 if it is not a symbol
+    private final long[] powers; // radix^j, for j from 0 to maxK
+
+    // Constructs an alphabet of symbols given in increasing order;
+    // if folds is true, the lowercase symbols are accepted too.
+
+    private Alphabet(String name, String letters, boolean folds, boolean skips) {
+
+        this.name = name;
+        this.letters = letters;
+        this.skips = skips;
+
+        indices = new byte[128];
+
+        for (int c=0; c<indices.length; c++) {
+            indices[c] = -1;
+        }
+
+        for (int i=0; i<letters.length(); i++) {
+            char c = letters.charAt(i);
+            indices[c] = (byte) i;
+            if (folds) {
+                indices[Character.toLowerCase(c)] = (byte) i;
+            }
+        }
+
+        // the largest k such that every code fits in a long
+
+        int maxK = 0;
+
+        while (Math.pow(letters.length(), maxK + 1) < Long.MAX_VALUE) {
+            maxK++;
+        }
+
+        powers = new long[maxK + 1];
+        powers[0] = 1;
+
+        for (int j=1; j<=maxK; j++) {
+            powers[j] = powers[j-1] * letters.length();
+        }
+    }
+
+    /** Returns the alphabet with this name.
+     *
+     * @param name DNA, DNA_N_SKIP or PROTEIN
+     * @return the alphabet
+     * @throws IllegalArgumentException if there is no such alphabet
+     */
+
+    public static Alphabet valueOf(String name) {
+
+        if (name.equals("DNA")) {
+            return DNA;
+        } else if (name.equals("DNA_N_SKIP")) {
+            return DNA_N_SKIP;
+        } else if (name.equals("PROTEIN")) {
+            return PROTEIN;
+        } else {
+            throw new IllegalArgumentException(name);
+        }
+    }
+
+    /** Returns the name of this alphabet.
+     *
+     * @return the name
+     */
+
+    public String name() {
+        return name;
+    }
+
+    /** Returns the symbols of this alphabet, in increasing order.
+     *
+     * @return the symbols
+     */
+
+    public String letters() {
+        return letters;
+    }
+
+    /** Returns the number of symbols, the base of the codes.
+     *
+     * @return the number of symbols
+     */
+
+    public int radix() {
+        return letters.length();
+    }
+
+    /** Returns true if the k-tuples overlapping a character that is
+     *  not a symbol are skipped, false if such a character stops the
+     *  counting.
+     *
+     * @return true if the other characters are skipped
+     */
+
+    public boolean skips() {
+        return skips;
+    }
+
+    /** Returns true if the symbols are the bases A, C, G, T, whose
+     *  codes are those of <strong>Kmers</strong>, and which have
+     *  complements.
+     *
+     * @return true for the DNA alphabets
+     */
+
+    public boolean isNucleotide() {
+        return letters.equals("ACGT");
+    }
+
+    /** Returns the largest k such that the codes of the k-tuples fit
+     *  in a <code>long</code>.
+     *
+     * @return the largest size of the k-tuples
+     */
+
+    public int maxK() {
+        return powers.length - 1;
+    }
+
+    /** Returns the number of k-tuples, that is radix^k.
+     *
+     * @param k the size of the k-tuples
+     * @return the number of k-tuples
+     * @throws IllegalArgumentException if k is not between 0 and maxK
+     */
+
+    public long size(int k) {
+
+        if (k < 0 || k >= powers.length) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        return powers[k];
+    }
+
+    /** Returns the number of a symbol, or -1 if the character is not
+     *  a symbol of this alphabet.
+     *
+     * @param c a character
+     * @return the number of the symbol, or -1
+     */
+
+    public int index(char c) {
+        return c < 128 ? indices[c] : -1;
+    }
+
+    /** Returns the code of a key, or -1 if the key contains a
+     *  character that is not a symbol, or is longer than maxK.
+     *
+     * @param key a k-tuple
+     * @return the code of the key, or -1
+     */
+
+    public long encode(String key) {
+
+        if (key.length() >= powers.length) {
+            return -1;
+        }
+
+        long code = 0;
+
+        for (int i=0; i<key.length(); i++) {
+            int c = index(key.charAt(i));
+            if (c < 0) {
+                return -1;
+            }
+            code = code * letters.length() + c;
+        }
+
+        return code;
+    }
+
+    /** Returns the k-tuple having this code.
+     *
+     * @param code the code of a k-tuple
+     * @param k the size of the k-tuple
+     * @return the k-tuple
+     */
+
+    public String decode(long code, int k) {
+
+        char[] key = new char[k];
+
+        for (int i=k-1; i>=0; i--) {
+            key[i] = letters.charAt((int) (code % letters.length()));
+            code = code / letters.length();
+        }
+
+        return new String(key);
+    }
+
+    /** Returns the name of this alphabet.
+     *
+     * @return the name
+     */
+
+    public String toString() {
+        return name;
+    }
+
+}
@@ -0,0 +1,199 @@
+import java.util.Random;
+
+/** Benchmarks of the implementations of the frequency table and of
+ *  the k-tuple distance, on synthetic sequences. Each measure is
+ *  repeated after a warmup phase, so that the code is compiled by the
+ *  JIT before it is timed, and the mean and standard deviation of the
+ *  measures are reported.
+ *
+ *  Usage: java Benchmark [types [kmin kmax [lengths]]], for instance
+ *  <code>java Benchmark PACKED,SPARSE 3 12 1000,1000000</code>. For
+ *  separate forks, run the program once per configuration.
+ */
+
+public class Benchmark {
+
+    private static final int WARMUP = 5; // runs not measured
+    private static final int ITERATIONS = 10; // runs measured
+
+    // Largest number of elementary steps of a single run; the
+    // configurations of the linked list beyond it are skipped, each
+    // of its updates scans the list.
+
+    private static final double BUDGET = 2e9;
+
+    // A measured operation. The setup is not timed; run returns a
+    // value so that its work cannot be optimized away.
+
+    private static abstract class Task {
+
+        void setup() {
+        }
+
+        abstract long run();
+    }
+
+    private static long sink = 0; // accumulates the results of the tasks
+
+    // Returns a random sequence over the alphabet A, C, G, T.
+
+    private static String sequence(int length, long seed) {
+
+        Random random = new Random(seed);
+        char[] bases = new char[length];
+
+        for (int i=0; i<length; i++) {
+            bases[i] = "ACGT".charAt(random.nextInt(4));
+        }
+
+        return new String(bases);
+    }
+
+    // Returns the number of keys of the table, or its width for a
+    // sketch, which does not know its number of keys.
+
+    private static long size(FrequencyTable t) {
+        return t instanceof SketchFrequencyTable ? ((SketchFrequencyTable) t).width() : t.size();
+    }
+
+    // Runs the task and prints the mean and the standard deviation
+    // of the running times.
+
+    private static void measure(String name, Task task) {
+
+        for (int i=0; i<WARMUP; i++) {
+            task.setup();
+            sink += task.run();
+        }
+
+        double[] times = new double[ITERATIONS];
+
+        for (int i=0; i<ITERATIONS; i++) {
+            task.setup();
+            long start = System.nanoTime();
+            sink += task.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+
+        double mean = 0.0, deviation = 0.0;
+
+        for (int i=0; i<ITERATIONS; i++) {
+            mean += times[i] / ITERATIONS;
+        }
+
+        for (int i=0; i<ITERATIONS; i++) {
+            deviation += (times[i] - mean) * (times[i] - mean) / ITERATIONS;
+        }
+
+        System.out.printf("%-40s %12.3f ms  +/- %.3f%n", name, mean, Math.sqrt(deviation));
+    }
+
+    // Benchmarks the operations of one type of table.
+
+    private static void run(final String type, final int k, final String a, final String b) {
+
+        Utils.setType(type);
+
+        final String prefix = type + " k=" + k + " n=" + a.length() + " ";
+        final String[] keys = new String[1024];
+
+        for (int i=0; i<keys.length; i++) {
+            int j = i % (a.length() - k + 1);
+            keys[i] = a.substring(j, j+k);
+        }
+
+        final FrequencyTable[] table = new FrequencyTable[1];
+
+        measure(prefix + "init", new Task() {
+                long run() {
+                    table[0] = Distance.newTable(k);
+                    return size(table[0]);
+                }
+            });
+
+        measure(prefix + "update", new Task() {
+                void setup() {
+                    table[0] = Distance.newTable(k);
+                }
+                long run() {
+                    Kmers.count(table[0], k, a);
+                    return size(table[0]);
+                }
+            });
+
+        measure(prefix + "get", new Task() {
+                long run() {
+                    long sum = 0;
+                    for (int i=0; i<keys.length; i++) {
+                        sum += table[0].get(keys[i]);
+                    }
+                    return sum;
+                }
+            });
+
+        measure(prefix + "keys", new Task() {
+                long run() {
+                    return table[0].keys().size();
+                }
+            });
+
+        measure(prefix + "values", new Task() {
+                long run() {
+                    return table[0].values().length;
+                }
+            });
+
+        measure(prefix + "compare", new Task() {
+                long run() {
+                    return (long) (1e9 * Distance.compare(k, a, b));
+                }
+            });
+    }
+
+    public static void main(String[] args) {
+
+        String[] types = {"LINEAR", "TREE", "PACKED", "SPARSE", "CONCURRENT"};
+        int kmin = 3, kmax = 12;
+        String[] lengths = {"1000", "100000", "10000000"};
+
+        if (args.length > 0) {
+            types = args[0].split(",");
+        }
+
+        if (args.length > 2) {
+            kmin = Integer.parseInt(args[1]);
+            kmax = Integer.parseInt(args[2]);
+        }
+
+        if (args.length > 3) {
+            lengths = args[3].split(",");
+        }
+
+        for (int i=0; i<lengths.length; i++) {
+
+            int length = Integer.parseInt(lengths[i]);
+
+            String a = sequence(length, 1);
+            String b = sequence(length, 2);
+
+            for (int k=kmin; k<=kmax; k++) {
+                for (int j=0; j<types.length; j++) {
+
+                    double keys = Math.pow(4, k);
+
+                    if (types[j].equals("LINEAR") && length * keys / 2 > BUDGET) {
+                        System.out.println(types[j] + " k=" + k + " n=" + length + " skipped");
+                        continue;
+                    }
+
+                    run(types[j], k, a, b);
+                }
+            }
+        }
+
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+
+}
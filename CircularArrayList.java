@@ -0,0 +1,254 @@
+import java.util.NoSuchElementException;
+
+/** Implements the interface <code>List</code> using a circular array.
+ *  The array doubles in size when it is full. Accessing an element by
+ *  its position, and adding or removing an element at either end of
+ *  the list, take constant time.
+ */
+
+public class CircularArrayList<E> implements List<E> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // An inner (non-static) class is used to implement the interface
+    // Iterator.
+
+    private class CircularArrayListIterator implements Iterator<E> {
+
+        private int current; // position of the next element
+
+        private CircularArrayListIterator() {
+            current = 0;
+        }
+
+        public E next() {
+
+            if (current >= size) {
+                throw new NoSuchElementException();
+            }
+
+            return get(current++);
+        }
+
+        public boolean hasNext() {
+            return current < size;
+        }
+
+    }
+
+    private Object[] elements; // the capacity is a power of two
+    private int head; // index of the first element
+    private int size;
+
+    public CircularArrayList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /** Constructs an empty list able to hold the specified number of
+     *  elements without growing.
+     *
+     * @param capacity the initial capacity
+     */
+
+    public CircularArrayList(int capacity) {
+
+        int length = INITIAL_CAPACITY;
+
+        while (length < capacity) {
+            length = length << 1;
+        }
+
+        elements = new Object[length];
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator for this list.
+     *
+     * @return an iterator for this list
+     */
+
+    public Iterator<E> iterator() {
+        return new CircularArrayListIterator();
+    }
+
+    /** Returns the size of the list.
+     *
+     * @return the size of the list
+     */
+
+    public int size() {
+        return size;
+    }
+
+    // Helper method. Returns the index in the array of the element at
+    // the specified position.
+
+    private int index(int pos) {
+        return (head + pos) & (elements.length - 1);
+    }
+
+    // Helper method. Doubles the capacity if the array is full.
+
+    private void ensureCapacity() {
+
+        if (size < elements.length) {
+            return;
+        }
+
+        Object[] larger = new Object[2 * elements.length];
+
+        for (int i=0; i<size; i++) {
+            larger[i] = elements[index(i)];
+        }
+
+        elements = larger;
+        head = 0;
+    }
+
+    /** Inserts the specified element at the beginning of this list.
+     *
+     * @param obj the object to be added
+     */
+
+    public void addFirst(E obj) {
+        add(0, obj);
+    }
+
+    /** Inserts the specified element at the end of this list.
+     *
+     * @param obj the object to be added
+     */
+
+    public void addLast(E obj) {
+        add(size, obj);
+    }
+
+    /** Inserts the specified element at a specified position of this
+     * list. The elements on the shorter side of the position are
+     * moved.
+     *
+     * @param pos the specified position
+     * @param obj the object to be added
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    public void add(int pos, E obj) {
+
+        if (obj == null) {
+            throw new NullPointerException();
+        }
+
+        if (pos < 0 || pos > size) {
+            throw new IndexOutOfBoundsException(Integer.toString(pos));
+        }
+
+        ensureCapacity();
+
+        if (pos < size - pos) {
+            head = (head - 1) & (elements.length - 1);
+            for (int i=0; i<pos; i++) {
+                elements[index(i)] = elements[index(i+1)];
+            }
+        } else {
+            for (int i=size; i>pos; i--) {
+                elements[index(i)] = elements[index(i-1)];
+            }
+        }
+
+        elements[index(pos)] = obj;
+        size++;
+    }
+
+    /** Removes the first element from this list.
+     */
+
+    public void removeFirst() {
+
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        remove(0);
+    }
+
+    /** Removes the last element from this list.
+     */
+
+    public void removeLast() {
+
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+
+        remove(size-1);
+    }
+
+    /** Remove the element at the specified position. The elements on
+     * the shorter side of the position are moved.
+     *
+     * @param pos the specified position
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    public void remove(int pos) {
+
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(pos));
+        }
+
+        if (pos < size - pos) {
+            for (int i=pos; i>0; i--) {
+                elements[index(i)] = elements[index(i-1)];
+            }
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+        } else {
+            for (int i=pos; i<size-1; i++) {
+                elements[index(i)] = elements[index(i+1)];
+            }
+            elements[index(size-1)] = null;
+        }
+
+        size--;
+    }
+
+    /** Returns the element found at the specied position.
+     *
+     * @param pos the specified position
+     * @return the element found at the specified position
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    @SuppressWarnings("unchecked")
+    public E get(int pos) {
+
+        if (pos < 0 || pos >= size) {
+            throw new IndexOutOfBoundsException(Integer.toString(pos));
+        }
+
+        return (E) elements[index(pos)];
+    }
+
+    /** Returns a String representation of this list.
+     *
+     * @return a String representation of this list
+     */
+
+    public String toString() {
+
+        StringBuffer str = new StringBuffer("{");
+
+        for (int i=0; i<size; i++) {
+            str.append(elements[index(i)]);
+            if (i < size-1) {
+                str.append(",");
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
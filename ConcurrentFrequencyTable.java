@@ -0,0 +1,348 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Implements the interface <code>FrequencyTable</code> for DNA
+ *  k-tuples with counters that can be updated by several threads at
+ *  once. Like <code>PackedFrequencyTable</code>, the keys are indexed
+ *  by their code in an array of size 4^k; each slot holds a
+ *  <code>LongAdder</code>, so concurrent updates of the same key do
+ *  not contend on a single lock or memory word.
+ *
+ *  The keys must all be created, by <strong>init</strong>, before the
+ *  threads calling <strong>update</strong> are started. The methods
+ *  keys and values return a snapshot that is exact once the updating
+ *  threads are done.
+ */
+
+public class ConcurrentFrequencyTable implements EncodedFrequencyTable {
+
+    // 4^15 is the largest power of four that fits in an array
+
+    private static final int MAX_K = 15;
+
+    private int k; // the length of the keys, 0 until the first init
+    private volatile LongAdder[] counts; // the counters, null for the absent keys
+    private int size; // the number of keys that were initialized
+
+    /** Constructs an empty <strong>FrequencyTable</strong>.
+     */
+
+    public ConcurrentFrequencyTable() {
+        k = 0;
+        counts = null;
+        size = 0;
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k.
+     *
+     * @param k the size of the keys
+     * @throws IllegalArgumentException if k is not between 1 and 15
+     */
+
+    public ConcurrentFrequencyTable(int k) {
+        allocate(k);
+        size = 0;
+    }
+
+    /** The size of the frequency table.
+     *
+     * @return the size of the frequency table
+     */
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Returns the frequency value associated with this key.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(String key) {
+        return counter(key).sum();
+    }
+
+    /** Returns the frequency value associated with the key having
+     *  this code.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(long code) {
+        return counter(code).sum();
+    }
+
+    /** Creates an entry in the frequency table and initializes its
+     *  count to zero. The first key determines the length of all the
+     *  keys of this table.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if it is not a k-tuple over the alphabet A, C, G, T
+     */
+
+    public synchronized void init(String key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("null in init");
+        }
+
+        if (counts == null) {
+            allocate(key.length());
+        }
+
+        long code = key.length() == k ? Kmers.encode(key) : -1;
+
+        if (code < 0) {
+            throw new IllegalArgumentException(key);
+        }
+
+        if (counts[(int) code] != null) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        counts[(int) code] = new LongAdder();
+        size++;
+    }
+
+    /** Creates an entry for the key having this code and
+     *  initializes its count to zero. The table must have been
+     *  constructed for a given size of keys.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if the code is out of range
+     */
+
+    public synchronized void init(long code) {
+
+        if (counts == null || code < 0 || code >= counts.length) {
+            throw new IllegalArgumentException(Long.toString(code));
+        }
+
+        if (counts[(int) code] != null) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        counts[(int) code] = new LongAdder();
+        size++;
+    }
+
+    /** Creates an entry for each key and initializes their counts
+     *  to zero.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws IllegalArgumentException if a key was already present,
+     *  or if it is not a k-tuple over the alphabet A, C, G, T
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+        while (sortedKeys.hasNext()) {
+            init(sortedKeys.next());
+        }
+    }
+
+    /** The method updates the frequency associated with the key by
+     *  one. This method can be called by several threads at once.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void update(String key) {
+        counter(key).increment();
+    }
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one. This method can be called by several
+     *  threads at once.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void update(long code) {
+        counter(code).increment();
+    }
+
+    /** The method decreases the frequency associated with the key by
+     *  one. This method can be called by several threads at once; the
+     *  caller must not remove more than was counted.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void decrement(String key) {
+        counter(key).decrement();
+    }
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one. This method can be called by several
+     *  threads at once; the caller must not remove more than was
+     *  counted.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void decrement(long code) {
+        counter(code).decrement();
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. This method can be called by several threads at once.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws NoSuchElementException if a key of other is not found
+     */
+
+    public void add(FrequencyTable other) {
+
+        Iterator<String> keys = other.keys().iterator();
+        long[] values = other.values();
+
+        for (int i=0; keys.hasNext(); i++) {
+            counter(keys.next()).add(values[i]);
+        }
+    }
+
+    /** Returns the list of keys in order, according to the method
+     *  <strong>compareTo</strong> of the key objects.
+     *
+     *  @return the list of keys in order
+     */
+
+    public List<String> keys() {
+
+        List<String> keysList = new CircularArrayList<String>(size());
+        LongAdder[] counts = this.counts;
+
+        if (counts != null) {
+            for (int i=0; i<counts.length; i++) {
+                if (counts[i] != null) {
+                    keysList.addLast(Kmers.decode(i, k));
+                }
+            }
+        }
+
+        return keysList;
+    }
+
+    /** Returns an array containing the frequencies of the keys in the
+     *  order specified by the method <strong>compareTo</strong> of
+     *  the key objects.
+     *
+     *  @return an array of frequency counts
+     */
+
+    public long[] values() {
+
+        long[] values = new long[size()];
+        LongAdder[] counts = this.counts;
+
+        if (counts != null) {
+            int counter = 0;
+            for (int i=0; i<counts.length; i++) {
+                if (counts[i] != null) {
+                    values[counter++] = counts[i].sum();
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+
+        LongAdder[] counts = this.counts;
+
+        if (counts != null) {
+            for (int i=0; i<counts.length; i++) {
+                if (counts[i] != null) {
+                    visitor.visit(counts[i].sum());
+                }
+            }
+        }
+    }
+
+    // Helper method. Allocates the counters for keys of size k.
+
+    private void allocate(int k) {
+
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.k = k;
+        counts = new LongAdder[1 << (2 * k)];
+    }
+
+    // Helper method. Returns the counter of the key.
+
+    private LongAdder counter(String key) {
+
+        if (key == null || key.length() != k) {
+            throw new NoSuchElementException(key);
+        }
+
+        long code = Kmers.encode(key);
+
+        if (code < 0) {
+            throw new NoSuchElementException(key);
+        }
+
+        return counter(code);
+    }
+
+    // Helper method. Returns the counter of the key having this code.
+
+    private LongAdder counter(long code) {
+
+        LongAdder[] counts = this.counts;
+
+        if (counts == null || code < 0 || code >= counts.length || counts[(int) code] == null) {
+            throw new NoSuchElementException(Long.toString(code));
+        }
+
+        return counts[(int) code];
+    }
+
+    /** Returns a <code>String</code> representations of the elements
+     * of the frequency table.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        StringBuffer str = new StringBuffer("{");
+        LongAdder[] counts = this.counts;
+
+        if (counts != null) {
+            for (int i=0; i<counts.length; i++) {
+                if (counts[i] != null) {
+                    if (str.length() > 1) {
+                        str.append(",");
+                    }
+                    str.append("{key="+Kmers.decode(i, k)+", count="+counts[i].sum()+"}");
+                }
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -0,0 +1,15 @@
+/** A <code>CountVisitor</code> receives the counts of a frequency
+ * table one at a time, in the order of the keys (see
+ * <strong>FrequencyTable.forEachCount</strong>).
+ */
+
+public interface CountVisitor {
+
+    /** Receives the count of the next key.
+     *
+     * @param count the count of the key
+     */
+
+    void visit(long count);
+
+}
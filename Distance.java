@@ -1,3 +1,8 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
 /**
  * Implements the k-tuple distance of Yang et al.: Yang et al. (2008)
  * Performance comparison between k-tuple distance and four
@@ -10,53 +15,266 @@
 
 public class Distance {
 
-    // Helper method. Uses a queue to generate all possible keys of
-    // size k.
-    
-    private static void init(FrequencyTable t, int k) {
+    // Smallest number of k-tuples counted by a single task
+
+    private static final int MIN_CHUNK = 1 << 16;
+
+    private static boolean parallel = false;
+
+    private static ProfileCache cache = null;
+
+    /** Selects the parallel counting mode. When enabled, each input
+     * string is split into chunks that are counted on the common
+     * <code>ForkJoinPool</code>, and the tables of the two strings
+     * are built concurrently. The chunks are counted into a single
+     * shared table if it is a CONCURRENT table, and otherwise into
+     * one table per worker thread, so the memory grows with the
+     * number of workers, not with the number of chunks.
+     *
+     * @param value <code>true</code> to count in parallel
+     */
+
+    public static void setParallel(boolean value) {
+	parallel = value;
+    }
+
+    /** Selects the cache of profiles used by compare and profile, or
+     * none if the value is null. With a cache, a sequence compared
+     * several times is counted only once.
+     *
+     * @param value the cache of profiles, or null
+     */
+
+    public static void setCache(ProfileCache value) {
+	cache = value;
+    }
 
-	String[] alphabet = {"A", "C", "G", "T"};
+    // Counts the k-tuples of s in parallel and returns its profile.
+    // A CONCURRENT table is shared by all the chunks; otherwise, each
+    // worker thread counts its chunks into a table of its own, and
+    // these tables are merged once all the chunks are counted.
 
-	LinkedList<String> keys = new LinkedList<String>();
+    private static class ProfileTask extends RecursiveTask<Profile> {
 
-	for (String a : alphabet) {
-	    keys.addLast(a);
+	private static final long serialVersionUID = 1L;
+
+	private final int k;
+	private final String s;
+	private final boolean canonical;
+	private final Alphabet alphabet;
+
+	private ProfileTask(int k, String s, boolean canonical, Alphabet alphabet) {
+	    this.k = k;
+	    this.s = s;
+	    this.canonical = canonical;
+	    this.alphabet = alphabet;
 	}
 
-	boolean done = false;
+	protected Profile compute() {
+
+	    FrequencyTable shared = Utils.getType().equals("CONCURRENT") ? newTable(k, alphabet) : null;
+	    ConcurrentHashMap<Thread, FrequencyTable> tables = new ConcurrentHashMap<Thread, FrequencyTable>();
 
-	while (! done) {
+	    int n = Math.max(0, s.length() - k + 1);
+	    int chunk = Math.max(MIN_CHUNK, n / (4 * ForkJoinPool.getCommonPoolParallelism()));
 
-	    String key = keys.get(0);
+	    long total = new CountTask(k, s, 0, n, chunk, canonical, alphabet, shared, tables).invoke();
 
-	    if (key.length() == k) {
-		done = true;
-	    } else {
-		keys.removeFirst();
-		for (String a : alphabet) {
-		    keys.addLast(a+key);
+	    FrequencyTable t = shared;
+
+	    for (FrequencyTable other : tables.values()) {
+		if (t == null) {
+		    t = other;
+		} else {
+		    t.add(other);
+		    release(other);
 		}
 	    }
-	    
+
+	    if (t == null) {
+		t = newTable(k, alphabet);
+	    }
+
+	    return new Profile(k, t, total, alphabet, canonical);
+	}
+    }
+
+    // Counts the k-tuples starting at the positions from (inclusive)
+    // to (exclusive) of s, into the shared table, or else into the
+    // table of the current worker thread, and returns their number.
+    // Large ranges are split in two halves.
+
+    private static class CountTask extends RecursiveTask<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int k;
+	private final String s;
+	private final int from;
+	private final int to;
+	private final int chunk;
+	private final boolean canonical;
+	private final Alphabet alphabet;
+	private final FrequencyTable shared; // the table of all the chunks, or null
+	private final ConcurrentHashMap<Thread, FrequencyTable> tables; // the tables of the workers
+
+	private CountTask(int k, String s, int from, int to, int chunk, boolean canonical, Alphabet alphabet,
+			  FrequencyTable shared, ConcurrentHashMap<Thread, FrequencyTable> tables) {
+	    this.k = k;
+	    this.s = s;
+	    this.from = from;
+	    this.to = to;
+	    this.chunk = chunk;
+	    this.canonical = canonical;
+	    this.alphabet = alphabet;
+	    this.shared = shared;
+	    this.tables = tables;
 	}
 
-	for (int i=0; i<keys.size(); i++) {
-	    t.init(keys.get(i));
+	protected Long compute() {
+
+	    if (to - from <= chunk) {
+		return Kmers.count(shared != null ? shared : table(), alphabet, k, s, from, to, canonical);
+	    }
+
+	    int middle = (from + to) >>> 1;
+
+	    CountTask left = new CountTask(k, s, from, middle, chunk, canonical, alphabet, shared, tables);
+	    left.fork();
+
+	    long right = new CountTask(k, s, middle, to, chunk, canonical, alphabet, shared, tables).compute();
+
+	    return left.join() + right;
 	}
 
+	// Helper method. Returns the table of the current thread,
+	// created by its first chunk; only this thread adds its entry.
+
+	private FrequencyTable table() {
+
+	    Thread thread = Thread.currentThread();
+	    FrequencyTable t = tables.get(thread);
+
+	    if (t == null) {
+		t = newTable(k, alphabet);
+		tables.put(thread, t);
+	    }
+
+	    return t;
+	}
     }
 
-    // Helper method. Extracts the k-tuples from s and updates the
-    // frequency table.
+    // Helper method. Creates all possible keys of size k, in
+    // lexicographic order. The tables indexed by code are given the
+    // codes directly, which are consecutive integers.
+    
+    private static void init(FrequencyTable t, int k, Alphabet alphabet) {
+
+	if (t instanceof EncodedFrequencyTable && k <= alphabet.maxK()) {
+
+	    EncodedFrequencyTable table = (EncodedFrequencyTable) t;
+
+	    for (long code=0; code < alphabet.size(k); code++) {
+		table.init(code);
+	    }
+
+	    return;
+	}
 
+	t.initAll(new KmerIterator(alphabet.letters(), k));
 
-    private static void update(FrequencyTable t, int k, String s) {
-	for (int i=0; i < s.length() - k + 1; i++) {
-            t.update(s.substring(i, i+k));
-        }
     }
 
-    /** Returns the k-tuples distance of the two input strings.
+    // Helper method. Returns an empty table for DNA keys of size k.
+
+    static FrequencyTable newTable(int k) {
+	return newTable(k, Alphabet.DNA);
+    }
+
+    // Helper method. Returns an empty table for keys of size k over
+    // the alphabet. All the keys are created, except for the sparse
+    // tables, which create them as they are counted, and the
+    // sketches, which do not keep them.
+
+    static FrequencyTable newTable(int k, Alphabet alphabet) {
+
+	FrequencyTable t = Utils.getFrequencyTable(k, alphabet);
+
+	if (! (t instanceof SparseFrequencyTable) && ! (t instanceof SketchFrequencyTable)) {
+	    init(t, k, alphabet);
+	}
+
+	return t;
+    }
+
+    // Helper method. Releases the memory of a table that is dropped,
+    // if it is held off the heap.
+
+    static void release(FrequencyTable t) {
+	if (t instanceof OffHeapFrequencyTable) {
+	    ((OffHeapFrequencyTable) t).close();
+	}
+    }
+
+    /** Returns the k-tuple profile of the input string. The profile
+     * is taken from the cache, if one is selected. The counting is
+     * done in parallel if the parallel mode is selected; the
+     * alphabet, and whether the canonical k-tuples are counted, are
+     * those selected in <strong>Utils</strong>. Without a cache, the
+     * caller owns the table: an OFFHEAP table should be closed once
+     * the profile is no longer needed.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param s input string
+     * @return the k-tuple profile of s
+     */
+
+    public static Profile profile(int k, String s) {
+	return profile(k, s, Utils.isCanonical());
+    }
+
+    /** Returns the k-tuple profile of the input string, counting the
+     * canonical k-tuples or not. In canonical mode, a k-tuple and its
+     * reverse complement are counted together, so that a sequence and
+     * its reverse complement have the same profile.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param s input string
+     * @param canonical true to count the canonical k-tuples
+     * @return the k-tuple profile of s
+     */
+
+    public static Profile profile(int k, String s, boolean canonical) {
+
+	ProfileCache c = cache;
+
+	if (c != null) {
+	    return c.profile(k, s, canonical);
+	}
+
+	return count(k, s, canonical, Utils.getAlphabet());
+    }
+
+    // Helper method. Counts the k-tuples of s, in parallel if the
+    // parallel mode is selected. Tables that accept codes are updated
+    // through a rolling window, without creating a String per
+    // k-tuple.
+
+    static Profile count(int k, String s, boolean canonical, Alphabet alphabet) {
+
+	if (parallel) {
+	    return ForkJoinPool.commonPool().invoke(new ProfileTask(k, s, canonical, alphabet));
+	}
+
+	FrequencyTable t = newTable(k, alphabet);
+	long total = Kmers.count(t, alphabet, k, s, 0, s.length() - k + 1, canonical);
+
+	return new Profile(k, t, total, alphabet, canonical);
+    }
+
+    /** Returns the k-tuples distance of the two input strings. The
+     * canonical k-tuples are counted if the canonical mode of
+     * <strong>Utils</strong> is selected.
      *
      * @param k the size of the k-tuples (k-grams)
      * @param a input string
@@ -65,34 +283,262 @@ public class Distance {
      */
     
     public static double compare(int k, String a, String b) {
+	return compare(k, a, b, Utils.isCanonical());
+    }
 
-	FrequencyTable fa = Utils.getFrequencyTable();
-	FrequencyTable fb = Utils.getFrequencyTable();
+    /** Returns the k-tuples distance of the two input strings,
+     * counting the canonical k-tuples or not. In canonical mode, the
+     * distance does not depend on the orientation of the sequences.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param a input string
+     * @param b input string
+     * @param canonical true to count the canonical k-tuples
+     * @return the k-tuples distance
+     */
 
-	init(fa, k);
-	init(fb, k);
+    public static double compare(int k, String a, String b, boolean canonical) {
 
-	update(fa, k, a);
-	update(fb, k, b);
+	if (parallel && cache == null) {
 
-	long[] as = fa.values();
-	long[] bs = fb.values();
+	    Alphabet alphabet = Utils.getAlphabet();
 
-	assert as.length == bs.length;
+	    ForkJoinTask<Profile> ta = ForkJoinPool.commonPool().submit(new ProfileTask(k, a, canonical, alphabet));
+	    ForkJoinTask<Profile> tb = ForkJoinPool.commonPool().submit(new ProfileTask(k, b, canonical, alphabet));
+
+	    return compareAndDrop(ta.join(), tb.join());
+	}
+
+	return compareAndDrop(profile(k, a, canonical), profile(k, b, canonical));
+    }
+
+    // Helper method. Returns the distance of two profiles built for
+    // this comparison only, and releases their tables, unless they
+    // belong to the cache.
+
+    private static double compareAndDrop(Profile a, Profile b) {
+	try {
+	    return compare(a, b);
+	} finally {
+	    drop(a);
+	    drop(b);
+	}
+    }
+
+    // Helper method. Releases the table of a profile that is no
+    // longer used, unless a cache is selected, which keeps it.
+
+    static void drop(Profile p) {
+	if (p != null && cache == null) {
+	    release(p.table());
+	}
+    }
+
+    /** Returns the k-tuples distance between the reference and each
+     * window of s of the given width, in a single pass over s. The
+     * i-th distance is that of the window starting at position i.
+     * The k-tuples overlapping a character other than A, C, G, T, in
+     * either case, are skipped.
+     *
+     * @param reference the profile the windows are compared to
+     * @param s input string
+     * @param width the number of bases in a window
+     * @return the k-tuples distances of the windows
+     * @throws IllegalArgumentException if the reference is a sketch,
+     * which does not keep its keys
+     */
+
+    public static double[] compare(Profile reference, String s, int width) {
+
+	SlidingProfile window = new SlidingProfile(reference.k(), width, s, reference);
+
+	try {
+
+	    double[] distances = new double[s.length() - width + 1];
+
+	    distances[0] = window.distance();
+
+	    while (window.hasNext()) {
+		window.next();
+		distances[window.start()] = window.distance();
+	    }
+
+	    return distances;
+
+	} finally {
+	    window.close();
+	}
+    }
+
+    /** Returns the k-tuples distance of two profiles. If both tables
+     * are sketches, the distance is an estimate, within 2 epsilon of
+     * the true distance with probability at least 1 - 3 delta (see
+     * <strong>SketchFrequencyTable.distance</strong>).
+     *
+     * @param a profile
+     * @param b profile
+     * @return the k-tuples distance
+     * @throws IllegalArgumentException if only one of the tables is a
+     * sketch, if the profiles are over different alphabets, or if
+     * only one of them counts the canonical k-tuples
+     */
+
+    public static double compare(Profile a, Profile b) {
+
+	if (! a.alphabet().letters().equals(b.alphabet().letters())) {
+	    throw new IllegalArgumentException(a.alphabet() + " and " + b.alphabet());
+	}
+
+	if (a.canonical() != b.canonical()) {
+	    throw new IllegalArgumentException("a canonical profile can only be compared to a canonical profile");
+	}
+
+	if (a.table() instanceof SketchFrequencyTable || b.table() instanceof SketchFrequencyTable) {
+
+	    if (! (a.table() instanceof SketchFrequencyTable && b.table() instanceof SketchFrequencyTable)) {
+		throw new IllegalArgumentException("a sketch can only be compared to a sketch");
+	    }
+
+	    return SketchFrequencyTable.distance((SketchFrequencyTable) a.table(), a.total(),
+						 (SketchFrequencyTable) b.table(), b.total());
+	}
+
+	if (dense(a) && dense(b)) {
+
+	    if (a.table() instanceof OffHeapFrequencyTable && b.table() instanceof OffHeapFrequencyTable) {
+		return OffHeapFrequencyTable.distance((OffHeapFrequencyTable) a.table(), a.total(),
+						      (OffHeapFrequencyTable) b.table(), b.total());
+	    }
+
+	    return distance(a.normalized(), b.normalized());
+	}
+
+	if (a.table() instanceof SparseFrequencyTable && b.table() instanceof SparseFrequencyTable) {
+	    return compare((SparseFrequencyTable) a.table(), a.total(),
+			   (SparseFrequencyTable) b.table(), b.total());
+	}
+
+	return compare(a.table(), a.total(), b.table(), b.total());
+    }
+
+    // Helper method. Returns true if the table of the profile holds
+    // all the possible keys, in which case the vectors of frequencies
+    // of two such profiles can be compared position by position.
+
+    static boolean dense(Profile p) {
+	return ! (p.table() instanceof SketchFrequencyTable)
+	    && p.k() <= p.alphabet().maxK() && p.table().size() == p.alphabet().size(p.k());
+    }
+
+    /** Returns the squared Euclidean distance of two vectors of
+     * frequencies. The loop keeps four independent partial sums, so
+     * that the JIT can unroll and vectorise it instead of waiting on
+     * a single accumulator; the distance is then bounded by memory
+     * bandwidth rather than by the latency of the additions.
+     *
+     * @param xs frequencies
+     * @param ys frequencies
+     * @return the squared Euclidean distance
+     */
+
+    public static double distance(double[] xs, double[] ys) {
+
+	assert xs.length == ys.length;
+
+	double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+
+	int n = xs.length & ~3, i;
+
+	for (i=0; i<n; i+=4) {
+
+	    double d0 = xs[i] - ys[i];
+	    double d1 = xs[i+1] - ys[i+1];
+	    double d2 = xs[i+2] - ys[i+2];
+	    double d3 = xs[i+3] - ys[i+3];
+
+	    s0 += d0 * d0;
+	    s1 += d1 * d1;
+	    s2 += d2 * d2;
+	    s3 += d3 * d3;
+	}
+
+	for (; i<xs.length; i++) {
+	    double d = xs[i] - ys[i];
+	    s0 += d * d;
+	}
+	
+	return (s0 + s1) + (s2 + s3);
+    }
+
+    // Helper method. Returns the k-tuples distance of two tables
+    // holding different sets of keys. The sorted lists of keys are
+    // merged; a key absent from a table has a count of zero.
+
+    private static double compare(FrequencyTable fa, long na, FrequencyTable fb, long nb) {
+
+	Iterator<String> as = fa.keys().iterator(), bs = fb.keys().iterator();
+	long[] xs = fa.values(), ys = fb.values();
+
+	String a = as.hasNext() ? as.next() : null;
+	String b = bs.hasNext() ? bs.next() : null;
+	int i = 0, j = 0;
 
 	double distance = 0.0;
 
-	for (int i=0; i<as.length; i++) {
+	while (a != null || b != null) {
+
+	    int test = a == null ? 1 : b == null ? -1 : a.compareTo(b);
+
+	    double x = 0.0, y = 0.0;
+
+	    if (test <= 0) {
+		x = xs[i++] / (double) na;
+		a = as.hasNext() ? as.next() : null;
+	    }
+
+	    if (test >= 0) {
+		y = ys[j++] / (double) nb;
+		b = bs.hasNext() ? bs.next() : null;
+	    }
+
+	    distance += (x - y) * (x - y);
+	}
+
+	return distance;
+    }
+
+    // Helper method. Returns the k-tuples distance of two sparse
+    // tables. Only the k-tuples present in either table are visited;
+    // a k-tuple absent from both tables contributes nothing.
+
+    private static double compare(SparseFrequencyTable fa, long na, SparseFrequencyTable fb, long nb) {
+
+	double distance = 0.0;
+
+	long[] codes = fa.codes();
+
+	for (int i=0; i<codes.length; i++) {
 
 	    double x, y;
 
-	    x = as[i] / (double) (a.length() - k + 1);
-	    y = bs[i] / (double) (b.length() - k + 1);
+	    x = fa.get(codes[i]) / (double) na;
+	    y = fb.get(codes[i]) / (double) nb;
 
-	    distance += Math.pow(x - y, 2.0);
-	    
+	    distance += (x - y) * (x - y);
 	}
-	
+
+	codes = fb.codes();
+
+	for (int i=0; i<codes.length; i++) {
+
+	    if (! fa.contains(codes[i])) {
+
+		double y = fb.get(codes[i]) / (double) nb;
+
+		distance += y * y;
+	    }
+	}
+
 	return distance;
     }
 
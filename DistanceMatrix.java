@@ -0,0 +1,358 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/** Computes the k-tuple distances of all the pairs of a list of
+ *  sequences. The profile of each sequence is built once, then the
+ *  upper triangle of the matrix is computed by square tiles that run
+ *  in parallel on the common <code>ForkJoinPool</code>.
+ *
+ *  The pairs can first be screened with MinHash sketches: the exact
+ *  distance is then computed only for the pairs whose estimated
+ *  Jaccard similarity reaches a threshold.
+ */
+
+public class DistanceMatrix {
+
+    // Number of rows and columns of a tile
+
+    private static final int TILE = 32;
+
+    // Builds the profile of one sequence.
+
+    private static class ProfileTask extends RecursiveTask<Profile> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int k;
+        private final String s;
+
+        private ProfileTask(int k, String s) {
+            this.k = k;
+            this.s = s;
+        }
+
+        protected Profile compute() {
+            return Distance.profile(k, s);
+        }
+    }
+
+    // Builds the MinHash sketch of one sequence.
+
+    private static class SketchTask extends RecursiveTask<MinHashSketch> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int k;
+        private final int size;
+        private final String s;
+
+        private SketchTask(int k, int size, String s) {
+            this.k = k;
+            this.size = size;
+            this.s = s;
+        }
+
+        protected MinHashSketch compute() {
+            return new MinHashSketch(k, size, s);
+        }
+    }
+
+    // Screens the pairs of the rows [row, row+TILE) and the columns
+    // [column, column+TILE), above the diagonal only: the pairs
+    // whose estimated similarity is below the threshold are set to
+    // NaN, on both sides of the diagonal, and the sequences of the
+    // other pairs are marked as needed.
+
+    private static class FilterTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final MinHashSketch[] sketches;
+        private final double threshold;
+        private final double[][] matrix;
+        private final boolean[] needed;
+        private final int row;
+        private final int column;
+
+        private FilterTask(MinHashSketch[] sketches, double threshold, double[][] matrix, boolean[] needed, int row, int column) {
+            this.sketches = sketches;
+            this.threshold = threshold;
+            this.matrix = matrix;
+            this.needed = needed;
+            this.row = row;
+            this.column = column;
+        }
+
+        protected void compute() {
+
+            int n = matrix.length;
+
+            for (int i=row; i<Math.min(row+TILE, n); i++) {
+                for (int j=Math.max(column, i+1); j<Math.min(column+TILE, n); j++) {
+                    if (sketches[i].similarity(sketches[j]) < threshold) {
+                        matrix[i][j] = Double.NaN;
+                        matrix[j][i] = Double.NaN;
+                    } else {
+                        needed[i] = true;
+                        needed[j] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    // Computes the distances of the rows [row, row+TILE) against the
+    // columns [column, column+TILE), above the diagonal only, and
+    // stores them on both sides of the diagonal. The pairs set to
+    // NaN were screened out, they are skipped.
+
+    private static class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Profile[] profiles;
+        private final double[][] vectors;
+        private final double[][] matrix;
+        private final int row;
+        private final int column;
+
+        private TileTask(Profile[] profiles, double[][] vectors, double[][] matrix, int row, int column) {
+            this.profiles = profiles;
+            this.vectors = vectors;
+            this.matrix = matrix;
+            this.row = row;
+            this.column = column;
+        }
+
+        protected void compute() {
+
+            int n = matrix.length;
+
+            for (int i=row; i<Math.min(row+TILE, n); i++) {
+                for (int j=Math.max(column, i+1); j<Math.min(column+TILE, n); j++) {
+
+                    if (Double.isNaN(matrix[i][j])) {
+                        continue;
+                    }
+
+                    double d;
+
+                    if (vectors == null) {
+                        d = Distance.compare(profiles[i], profiles[j]);
+                    } else {
+                        d = Distance.distance(vectors[i], vectors[j]);
+                    }
+
+                    matrix[i][j] = d;
+                    matrix[j][i] = d;
+                }
+            }
+        }
+    }
+
+    /** Returns the matrix of the k-tuple distances of the sequences.
+     *  The element (i, j) is the distance of the i-th and j-th
+     *  sequences of the list; the matrix is symmetric and its diagonal
+     *  is zero.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param sequences the list of sequences
+     * @return the matrix of distances
+     */
+
+    public static double[][] compute(int k, List<String> sequences) {
+
+        int n = sequences.size();
+
+        // the profiles are built once per sequence, concurrently
+
+        ProfileTask[] tasks = new ProfileTask[n];
+        Iterator<String> i = sequences.iterator();
+
+        for (int pos=0; pos<n; pos++) {
+            tasks[pos] = new ProfileTask(k, i.next());
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        for (int pos=0; pos<n; pos++) {
+            pool.execute(tasks[pos]);
+        }
+
+        Profile[] profiles = new Profile[n];
+
+        for (int pos=0; pos<n; pos++) {
+            profiles[pos] = tasks[pos].join();
+        }
+
+        try {
+            return compute(profiles);
+        } finally {
+            for (int pos=0; pos<n; pos++) {
+                Distance.drop(profiles[pos]);
+            }
+        }
+    }
+
+    /** Returns the matrix of the k-tuple distances of the pairs of
+     *  sequences that are similar enough. A MinHash sketch of each
+     *  sequence is built first; the exact distance is then computed
+     *  only for the pairs whose estimated Jaccard similarity is at
+     *  least the threshold, and only the sequences of these pairs
+     *  are profiled. The other elements of the matrix are NaN; the
+     *  diagonal is zero.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param sequences the list of sequences
+     * @param sketchSize the number of hash values of the sketches
+     * @param threshold the smallest estimated similarity of a pair
+     * whose distance is computed, between 0 and 1
+     * @return the matrix of distances
+     */
+
+    public static double[][] compute(int k, List<String> sequences, int sketchSize, double threshold) {
+
+        int n = sequences.size();
+        String[] strings = new String[n];
+        Iterator<String> i = sequences.iterator();
+
+        for (int pos=0; pos<n; pos++) {
+            strings[pos] = i.next();
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        // the sketches, concurrently
+
+        SketchTask[] sketchTasks = new SketchTask[n];
+
+        for (int pos=0; pos<n; pos++) {
+            sketchTasks[pos] = new SketchTask(k, sketchSize, strings[pos]);
+            pool.execute(sketchTasks[pos]);
+        }
+
+        MinHashSketch[] sketches = new MinHashSketch[n];
+
+        for (int pos=0; pos<n; pos++) {
+            sketches[pos] = sketchTasks[pos].join();
+        }
+
+        // the screen of all the pairs
+
+        double[][] matrix = new double[n][n];
+        boolean[] needed = new boolean[n];
+
+        LinkedList<ForkJoinTask<Void>> tiles = new LinkedList<ForkJoinTask<Void>>();
+
+        for (int row=0; row<n; row+=TILE) {
+            for (int column=row; column<n; column+=TILE) {
+                tiles.addLast(new FilterTask(sketches, threshold, matrix, needed, row, column));
+            }
+        }
+
+        run(tiles);
+
+        // the profiles of the sequences of the remaining pairs
+
+        ProfileTask[] profileTasks = new ProfileTask[n];
+
+        for (int pos=0; pos<n; pos++) {
+            if (needed[pos]) {
+                profileTasks[pos] = new ProfileTask(k, strings[pos]);
+                pool.execute(profileTasks[pos]);
+            }
+        }
+
+        Profile[] profiles = new Profile[n];
+
+        for (int pos=0; pos<n; pos++) {
+            if (needed[pos]) {
+                profiles[pos] = profileTasks[pos].join();
+            }
+        }
+
+        try {
+            fill(profiles, matrix);
+        } finally {
+            for (int pos=0; pos<n; pos++) {
+                Distance.drop(profiles[pos]);
+            }
+        }
+
+        return matrix;
+    }
+
+    /** Returns the matrix of the k-tuple distances of the profiles.
+     *  The element (i, j) is the distance of the i-th and j-th
+     *  profiles; the matrix is symmetric and its diagonal is zero.
+     *
+     * @param profiles the profiles
+     * @return the matrix of distances
+     */
+
+    public static double[][] compute(Profile[] profiles) {
+
+        double[][] matrix = new double[profiles.length][profiles.length];
+
+        fill(profiles, matrix);
+
+        return matrix;
+    }
+
+    // Helper method. Computes the distances of the pairs of the
+    // matrix that are not NaN. The profiles of the sequences that
+    // are in no such pair can be null.
+
+    private static void fill(Profile[] profiles, double[][] matrix) {
+
+        int n = profiles.length;
+
+        // the dense profiles are normalized once, the others are
+        // compared through their tables
+
+        double[][] vectors = new double[n][];
+
+        for (int pos=0; pos<n; pos++) {
+            if (profiles[pos] == null) {
+                continue;
+            }
+            if (! Distance.dense(profiles[pos])) {
+                vectors = null;
+                break;
+            }
+            vectors[pos] = profiles[pos].normalized();
+        }
+
+        LinkedList<ForkJoinTask<Void>> tiles = new LinkedList<ForkJoinTask<Void>>();
+
+        for (int row=0; row<n; row+=TILE) {
+            for (int column=row; column<n; column+=TILE) {
+                tiles.addLast(new TileTask(profiles, vectors, matrix, row, column));
+            }
+        }
+
+        run(tiles);
+    }
+
+    // Helper method. Runs the tasks on the common pool and waits for
+    // all of them.
+
+    private static void run(LinkedList<ForkJoinTask<Void>> tasks) {
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        Iterator<ForkJoinTask<Void>> i = tasks.iterator();
+
+        while (i.hasNext()) {
+            pool.execute(i.next());
+        }
+
+        i = tasks.iterator();
+
+        while (i.hasNext()) {
+            i.next().join();
+        }
+    }
+
+}
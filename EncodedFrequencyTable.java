@@ -0,0 +1,43 @@
+/**
+ * The interface <strong>EncodedFrequencyTable</strong>. A frequency
+ * table whose keys can also be addressed by their integer code, as
+ * computed by <strong>Kmers.encode</strong>. Updating a table through
+ * the codes avoids creating a <code>String</code> for each k-tuple.
+ */
+
+public interface EncodedFrequencyTable extends FrequencyTable {
+
+    /** Returns the frequency value associated with the key having
+     *  this code.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     */
+
+    long get(long code);
+
+    /** Creates an entry for the key having this code and
+     *  initializes its count to zero.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    void init(long code);
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    void update(long code);
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    void decrement(long code);
+
+}
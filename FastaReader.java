@@ -0,0 +1,209 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+
+/** Reads the records of a FASTA file and returns the k-tuple profile
+ *  of each one. The file is read through a channel into a fixed size
+ *  buffer, and the bases go straight into a <code>KmerCounter</code>:
+ *  the memory used is that of the buffer and of the tables, whatever
+ *  the size of the sequences. A file without header line is read as a
+ *  single record.
+ *
+ *  The input can also be a sequence of buffers, for instance the
+ *  windows of a memory-mapped file (see <strong>Utils.map</strong>);
+ *  their bytes are then scanned in place, without any copy.
+ */
+
+public class FastaReader implements Iterator<Profile> {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel; // the input, or null
+    private final ByteBuffer[] windows; // the input if channel is null
+    private int window; // the index of the current window
+    private ByteBuffer buffer; // the bytes read but not processed yet
+    private final int k; // the size of the k-tuples
+    private boolean eof; // true once the end of the channel was reached
+    private int pending; // a byte read ahead, or -1
+    private String name; // the header of the last record returned
+
+    /** Opens the file for reading.
+     *
+     * @param name the name of the file
+     * @param k the size of the k-tuples
+     * @throws IOException if an I/O error occurs
+     */
+
+    public FastaReader(String name, int k) throws IOException {
+        this(FileChannel.open(Paths.get(name)), k);
+    }
+
+    /** Reads from a channel.
+     *
+     * @param channel the input
+     * @param k the size of the k-tuples
+     */
+
+    public FastaReader(ReadableByteChannel channel, int k) {
+        this.channel = channel;
+        this.windows = null;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        this.buffer.flip(); // empty
+        this.k = k;
+        this.eof = false;
+        this.pending = -1;
+        this.name = null;
+    }
+
+    /** Reads the bytes remaining in the buffers, in order. A record
+     *  can span several buffers.
+     *
+     * @param windows the input
+     * @param k the size of the k-tuples
+     */
+
+    public FastaReader(ByteBuffer[] windows, int k) {
+        this.channel = null;
+        this.windows = windows;
+        this.window = 0;
+        this.buffer = windows.length > 0 ? windows[0] : ByteBuffer.allocate(0);
+        this.k = k;
+        this.eof = windows.length <= 1;
+        this.pending = -1;
+        this.name = null;
+    }
+
+    /** Returns true if there is another record.
+     *
+     * @return true if there is another record
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+
+    public boolean hasNext() {
+
+        int b = read();
+
+        while (b == '\n' || b == '\r' || b == ' ' || b == '\t') {
+            b = read();
+        }
+
+        pending = b;
+
+        return b != -1;
+    }
+
+    /** Reads the next record and returns its profile.
+     *
+     * @return the profile of the next record
+     * @throws NoSuchElementException if there is no more record
+     * @throws UncheckedIOException if an I/O error occurs
+     */
+
+    public Profile next() {
+
+        if (! hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        int b = read();
+
+        StringBuffer header = new StringBuffer();
+
+        if (b == '>') {
+            b = read();
+            while (b != -1 && b != '\n') {
+                if (b != '\r') {
+                    header.append((char) b);
+                }
+                b = read();
+            }
+        }
+
+        name = header.toString();
+
+        Alphabet alphabet = Utils.getAlphabet();
+        KmerCounter counter = new KmerCounter(Distance.newTable(k, alphabet), k, Utils.isCanonical(), alphabet);
+        boolean start = true; // at the start of a line
+
+        while (b != -1) {
+            if (b == '\n') {
+                start = true;
+            } else if (b == '>' && start) {
+                pending = b; // the header of the next record
+                break;
+            } else if (b != '\r' && b != ' ' && b != '\t') {
+                start = false;
+                counter.push((char) b);
+            }
+            b = read();
+        }
+
+        return counter.profile();
+    }
+
+    /** Returns the header of the last record returned by next,
+     *  without the leading '&gt;'. The header of a file without
+     *  header line is the empty string.
+     *
+     * @return the header of the last record
+     */
+
+    public String name() {
+        return name;
+    }
+
+    /** Closes the input.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // Helper method. Returns the next byte of the input, or -1 at the
+    // end of the input.
+
+    private int read() {
+
+        if (pending != -1) {
+            int b = pending;
+            pending = -1;
+            return b;
+        }
+
+        while (! buffer.hasRemaining()) {
+            if (eof) {
+                return -1;
+            }
+            if (channel == null) {
+                buffer = windows[++window];
+                eof = window == windows.length - 1;
+                continue;
+            }
+            try {
+                buffer.clear();
+                int n = channel.read(buffer);
+                while (n == 0) {
+                    n = channel.read(buffer);
+                }
+                buffer.flip();
+                if (n < 0) {
+                    eof = true;
+                    return -1;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return buffer.get() & 0xff;
+    }
+
+}
@@ -25,6 +25,16 @@ public interface FrequencyTable {
 
     void init(String key);
 
+    /** Creates an entry for each key, in a single pass over the
+     *  keys, and initializes their counts to zero. The keys must be
+     *  given in increasing order, according to the method
+     *  <strong>compareTo</strong>.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     */
+
+    void initAll(Iterator<String> sortedKeys);
+
     /** The method updates the frequency associated with the key by one.
      *
      *  @param key key with which the specified value is to be associated
@@ -32,13 +42,22 @@ public interface FrequencyTable {
 
     void update(String key);
 
+    /** The method decreases the frequency associated with the key by
+     *  one. Used to remove a key counted before, for instance when a
+     *  window slides over a sequence.
+     *
+     *  @param key key with which the specified value is to be associated
+     */
+
+    void decrement(String key);
+
     /** Returns the list of keys in order, according to the method
      *  <strong>compareTo</strong> of the key objects.
      *
      *  @return the list of keys in order
      */
 
-    LinkedList<String> keys();
+    List<String> keys();
 
     /** Returns an array containing the frequencies of the keys in the
      *  order specified by the method <strong>compareTo</strong> of
@@ -49,6 +68,24 @@ public interface FrequencyTable {
 
     long[] values();
 
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects,
+     *  without copying them to an array.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    void forEachCount(CountVisitor visitor);
+
+    /** Adds the counts of the other table to the counts of this
+     *  table, key by key. Used to merge tables that were filled
+     *  separately, for instance by different threads.
+     *
+     *  @param other the table whose counts are to be added
+     */
+
+    void add(FrequencyTable other);
+
     /** The size of the frequency table.
      *
      * @return the size of the frequency table
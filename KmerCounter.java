@@ -0,0 +1,114 @@
+import java.util.NoSuchElementException;
+
+/** Counts the k-tuples of a sequence whose bases are given one at a
+ *  time. A window of 2k bits slides over the bases, as in
+ *  <strong>Kmers.count</strong>, so the sequence never needs to be
+ *  held in memory. Lowercase bases are counted as uppercase ones;
+ *  any other character, such as N, interrupts the sequence: the
+ *  k-tuples overlapping it are skipped.
+ *
+ *  A counter constructed for another <strong>Alphabet</strong> reads
+ *  its symbols instead, the window holding a number in base r for an
+ *  alphabet of r symbols.
+ */
+
+public class KmerCounter {
+
+    private final FrequencyTable table; // the table being updated
+    private final int k; // the size of the k-tuples
+    private final KmerWindow window; // the last k bases
+    private long total; // the number of k-tuples counted
+
+    /** Constructs a counter updating the table with the k-tuples of
+     *  the bases pushed.
+     *
+     * @param table the frequency table
+     * @param k the size of the k-tuples
+     * @throws IllegalArgumentException if k is larger than Kmers.MAX_K
+     */
+
+    public KmerCounter(FrequencyTable table, int k) {
+        this(table, k, false);
+    }
+
+    /** Constructs a counter updating the table with the k-tuples of
+     *  the bases pushed. In canonical mode, each k-tuple is counted
+     *  under its canonical code (see <strong>Kmers.canonical</strong>).
+     *
+     * @param table the frequency table
+     * @param k the size of the k-tuples
+     * @param canonical true to count the canonical k-tuples
+     * @throws IllegalArgumentException if k is larger than Kmers.MAX_K
+     */
+
+    public KmerCounter(FrequencyTable table, int k, boolean canonical) {
+        this(table, k, canonical, Alphabet.DNA_N_SKIP);
+    }
+
+    /** Constructs a counter updating the table with the k-tuples of
+     *  the symbols pushed, over the alphabet.
+     *
+     * @param table the frequency table
+     * @param k the size of the k-tuples
+     * @param canonical true to count the canonical k-tuples, for DNA only
+     * @param alphabet the symbols of the sequence
+     * @throws IllegalArgumentException if k is larger than maxK of the
+     * alphabet, or if canonical is true and the alphabet is not DNA
+     */
+
+    public KmerCounter(FrequencyTable table, int k, boolean canonical, Alphabet alphabet) {
+        this.table = table;
+        this.k = k;
+        this.window = new KmerWindow(k, canonical, alphabet);
+        this.total = 0;
+    }
+
+    /** Adds a base to the sequence, and counts the k-tuple ending
+     *  with it, if any.
+     *
+     * @param c the base
+     * @throws NoSuchElementException if c is not a symbol of the
+     * alphabet, and the alphabet does not skip the other characters
+     */
+
+    public void push(char c) {
+
+        long key = window.push(c);
+
+        if (key >= 0) {
+            if (table instanceof EncodedFrequencyTable) {
+                ((EncodedFrequencyTable) table).update(key);
+            } else {
+                table.update(window.alphabet().decode(key, k));
+            }
+            total++;
+        }
+    }
+
+    /** Interrupts the sequence; the next k-tuple will start with the
+     *  next base pushed.
+     */
+
+    public void reset() {
+        window.reset();
+    }
+
+    /** Returns the number of k-tuples counted.
+     *
+     * @return the number of k-tuples
+     */
+
+    public long total() {
+        return total;
+    }
+
+    /** Returns the profile of the bases pushed so far.
+     *
+     * @return the profile
+     */
+
+    public Profile profile() {
+        return new Profile(k, table, total, window.alphabet(), window.canonical());
+    }
+
+}
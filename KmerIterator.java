@@ -0,0 +1,95 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** Enumerates all the k-tuples over an alphabet, in lexicographic
+ *  order, which is the order of the keys of a frequency table. The
+ *  k-tuples are generated one at a time, like the digits of an
+ *  odometer; nothing is stored besides the current k-tuple.
+ */
+
+public class KmerIterator implements Iterator<String> {
+
+    private final char[] alphabet; // the symbols, in increasing order
+    private final int[] digits; // the positions of the symbols of the next k-tuple
+    private final char[] key; // the next k-tuple
+    private boolean done; // true once all the k-tuples were returned
+
+    /** Enumerates the k-tuples over the alphabet A, C, G, T.
+     *
+     * @param k the size of the k-tuples
+     */
+
+    public KmerIterator(int k) {
+        this("ACGT", k);
+    }
+
+    /** Enumerates the k-tuples over an alphabet.
+     *
+     * @param alphabet the symbols of the alphabet, in any order
+     * @param k the size of the k-tuples
+     * @throws IllegalArgumentException if k is negative or the alphabet empty
+     */
+
+    public KmerIterator(String alphabet, int k) {
+
+        if (k < 0 || alphabet.length() == 0) {
+            throw new IllegalArgumentException();
+        }
+
+        this.alphabet = alphabet.toCharArray();
+        Arrays.sort(this.alphabet);
+
+        digits = new int[k];
+        key = new char[k];
+
+        Arrays.fill(key, this.alphabet[0]);
+
+        done = false;
+    }
+
+    /**
+     * Returns true if there are more k-tuples.
+     *
+     * @return true if there are more k-tuples
+     */
+
+    public boolean hasNext() {
+        return ! done;
+    }
+
+    /**
+     * Returns the next k-tuple.
+     *
+     * @return the next k-tuple
+     * @throws NoSuchElementException if all the k-tuples were returned
+     */
+
+    public String next() {
+
+        if (done) {
+            throw new NoSuchElementException();
+        }
+
+        String result = new String(key);
+
+        // increments the last digit, with carry
+
+        int i = key.length - 1;
+
+        while (i >= 0 && digits[i] == alphabet.length - 1) {
+            digits[i] = 0;
+            key[i] = alphabet[0];
+            i--;
+        }
+
+        if (i < 0) {
+            done = true;
+        } else {
+            digits[i]++;
+            key[i] = alphabet[digits[i]];
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,145 @@
+import java.util.NoSuchElementException;
+
+/** A window of k bases rolling over a sequence whose characters are
+ *  given one at a time. Once k valid bases are in the window, each
+ *  base pushed completes a k-tuple, whose code is returned, as
+ *  computed by <strong>Kmers.encode</strong>; in canonical mode, the
+ *  canonical code is returned instead (see
+ *  <strong>Kmers.canonical</strong>). Lowercase bases are read as
+ *  uppercase ones; any other character, such as N, empties the
+ *  window, so the k-tuples overlapping it are skipped.
+ *
+ *  A window constructed for another <strong>Alphabet</strong> reads
+ *  its symbols instead, the code being a number in base r for an
+ *  alphabet of r symbols, as computed by <strong>encode</strong> of
+ *  the alphabet. If the alphabet does not skip the other characters,
+ *  they are rejected.
+ */
+
+public class KmerWindow {
+
+    private final int k; // the size of the k-tuples
+    private final boolean canonical; // true to return the canonical codes
+    private final Alphabet alphabet; // the symbols of the sequence
+    private final long high; // the weight of the first symbol of the window
+    private final long mask; // the 2k low bits
+    private long code; // the code of the last k bases
+    private long reverse; // the code of the reverse complement of the last k bases
+    private int length; // the number of valid bases in the window, up to k
+
+    /** Constructs an empty window over DNA.
+     *
+     * @param k the size of the k-tuples
+     * @param canonical true to return the canonical codes
+     * @throws IllegalArgumentException if k is not between 1 and
+     * Kmers.MAX_K
+     */
+
+    public KmerWindow(int k, boolean canonical) {
+        this(k, canonical, Alphabet.DNA_N_SKIP);
+    }
+
+    /** Constructs an empty window over the alphabet.
+     *
+     * @param k the size of the k-tuples
+     * @param canonical true to return the canonical codes, for DNA only
+     * @param alphabet the symbols of the sequence
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, or if canonical is true and the alphabet is
+     * not DNA
+     */
+
+    public KmerWindow(int k, boolean canonical, Alphabet alphabet) {
+
+        if (k < 1 || k > alphabet.maxK()) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        if (canonical && ! alphabet.isNucleotide()) {
+            throw new IllegalArgumentException("no reverse complement in " + alphabet);
+        }
+
+        this.k = k;
+        this.canonical = canonical;
+        this.alphabet = alphabet;
+        this.high = alphabet.size(k - 1);
+        this.mask = (1L << (2 * k)) - 1;
+    }
+
+    /** Returns the size of the k-tuples.
+     *
+     * @return the size of the k-tuples
+     */
+
+    public int k() {
+        return k;
+    }
+
+    /** Returns true if the canonical codes are returned.
+     *
+     * @return true in canonical mode
+     */
+
+    public boolean canonical() {
+        return canonical;
+    }
+
+    /** Returns the alphabet of the sequence.
+     *
+     * @return the alphabet
+     */
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    /** Adds a character to the window, and returns the code of the
+     *  k-tuple ending with it, or -1 if there is none.
+     *
+     * @param c the character
+     * @return the code of the k-tuple ending with c, or -1
+     * @throws NoSuchElementException if c is not a symbol of the
+     * alphabet, and the alphabet does not skip the other characters
+     */
+
+    public long push(char c) {
+
+        int base = alphabet.index(c);
+
+        if (base < 0) {
+            if (! alphabet.skips()) {
+                throw new NoSuchElementException(Character.toString(c));
+            }
+            length = 0;
+            return -1;
+        }
+
+        if (alphabet.isNucleotide()) {
+            code = ((code << 2) | base) & mask;
+            if (canonical) {
+                reverse = (reverse >>> 2) | ((long) (3 - base) << (2 * (k - 1)));
+            }
+        } else {
+            code = (length == 0 ? 0 : length < k ? code : code % high) * alphabet.radix() + base;
+        }
+
+        if (length < k) {
+            length++;
+        }
+
+        if (length < k) {
+            return -1;
+        }
+
+        return canonical ? Math.min(code, reverse) : code;
+    }
+
+    /** Empties the window; the next k-tuple will start with the next
+     *  character pushed.
+     */
+
+    public void reset() {
+        length = 0;
+    }
+
+}
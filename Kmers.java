@@ -0,0 +1,298 @@
+import java.util.NoSuchElementException;
+
+/** Helper methods to encode k-tuples over the alphabet A, C, G, T
+ * and to extract them from a sequence. A k-tuple is packed into a
+ * <code>long</code>, two bits per base, the first base being the most
+ * significant. The order of the codes is therefore the lexicographic
+ * order of the keys.
+ */
+
+public class Kmers {
+
+    /** The largest value of k such that a k-tuple fits in a code. */
+
+    public static final int MAX_K = 31;
+
+    private static final String ALPHABET = "ACGT";
+
+    /** Returns the code of a base, or -1 if the character is not one
+     * of A, C, G, T.
+     *
+     * @param c a character
+     * @return the code of the base, or -1
+     */
+
+    public static int code(char c) {
+	switch (c) {
+	case 'A': return 0;
+	case 'C': return 1;
+	case 'G': return 2;
+	case 'T': return 3;
+	default: return -1;
+	}
+    }
+
+    /** Returns the code of a key, or -1 if the key contains a
+     * character other than A, C, G, T.
+     *
+     * @param key a k-tuple
+     * @return the code of the key, or -1
+     */
+
+    public static long encode(String key) {
+
+	if (key.length() > MAX_K) {
+	    return -1;
+	}
+
+	long code = 0;
+
+	for (int i=0; i<key.length(); i++) {
+	    int c = code(key.charAt(i));
+	    if (c < 0) {
+		return -1;
+	    }
+	    code = (code << 2) | c;
+	}
+
+	return code;
+    }
+
+    /** Returns the k-tuple having this code.
+     *
+     * @param code the code of a k-tuple
+     * @param k the size of the k-tuple
+     * @return the k-tuple
+     */
+
+    public static String decode(long code, int k) {
+
+	char[] key = new char[k];
+
+	for (int i=k-1; i>=0; i--) {
+	    key[i] = ALPHABET.charAt((int) (code & 3));
+	    code = code >>> 2;
+	}
+
+	return new String(key);
+    }
+
+    /** Returns the code of the reverse complement of the k-tuple
+     * having this code: the k-tuple read backwards on the other
+     * strand, A and T, C and G being exchanged. The complement of a
+     * base is 3 minus its code.
+     *
+     * @param code the code of a k-tuple
+     * @param k the size of the k-tuple
+     * @return the code of its reverse complement
+     */
+
+    public static long reverseComplement(long code, int k) {
+
+	long result = 0;
+
+	for (int i=0; i<k; i++) {
+	    result = (result << 2) | (3 - (code & 3));
+	    code = code >>> 2;
+	}
+
+	return result;
+    }
+
+    /** Returns the canonical code of the k-tuple having this code:
+     * the smaller of its code and the code of its reverse complement.
+     * A k-tuple and its reverse complement have the same canonical
+     * code.
+     *
+     * @param code the code of a k-tuple
+     * @param k the size of the k-tuple
+     * @return the canonical code
+     */
+
+    public static long canonical(long code, int k) {
+	return Math.min(code, reverseComplement(code, k));
+    }
+
+    /** Extracts the k-tuples from s and updates the frequency
+     * table. If the table is an <code>EncodedFrequencyTable</code>, a
+     * window of 2k bits slides over the characters of s and the code
+     * of each k-tuple is passed to the table; no <code>String</code>
+     * is created.
+     *
+     * @param t the frequency table
+     * @param k the size of the k-tuples
+     * @param s the sequence
+     * @throws NoSuchElementException if s contains a character other than A, C, G, T
+     */
+
+    public static void count(FrequencyTable t, int k, String s) {
+	count(t, k, s, 0, s.length() - k + 1);
+    }
+
+    /** Extracts the k-tuples starting at the positions from (inclusive)
+     * to (exclusive) of s and updates the frequency table. The
+     * characters read are those from <code>from</code> to
+     * <code>to+k-1</code>, consecutive ranges therefore overlap by k-1
+     * characters.
+     *
+     * @param t the frequency table
+     * @param k the size of the k-tuples
+     * @param s the sequence
+     * @param from the position of the first k-tuple
+     * @param to the position following the last k-tuple
+     * @throws NoSuchElementException if s contains a character other than A, C, G, T
+     */
+
+    public static void count(FrequencyTable t, int k, String s, int from, int to) {
+	count(t, k, s, from, to, false);
+    }
+
+    /** Extracts the k-tuples starting at the positions from (inclusive)
+     * to (exclusive) of s and updates the frequency table, as
+     * above. In canonical mode, each k-tuple is counted under its
+     * canonical code, so that a k-tuple and its reverse complement
+     * share their count; the code of the reverse complement is
+     * maintained by the rolling window, shifting in the complement of
+     * each base from the left.
+     *
+     * @param t the frequency table
+     * @param k the size of the k-tuples
+     * @param s the sequence
+     * @param from the position of the first k-tuple
+     * @param to the position following the last k-tuple
+     * @param canonical true to count the canonical k-tuples
+     * @throws NoSuchElementException if s contains a character other than A, C, G, T
+     */
+
+    public static void count(FrequencyTable t, int k, String s, int from, int to, boolean canonical) {
+	count(t, Alphabet.DNA, k, s, from, to, canonical);
+    }
+
+    /** Extracts the k-tuples over the alphabet starting at the
+     * positions from (inclusive) to (exclusive) of s, updates the
+     * frequency table and returns the number of k-tuples counted. The
+     * code of the window is updated in base radix as each symbol
+     * comes in: the symbol leaving the window is subtracted, the code
+     * is multiplied by the radix and the new symbol added (a shift
+     * and a mask for DNA). If the alphabet skips the other
+     * characters, a character that is not a symbol restarts the
+     * window, so the k-tuples overlapping it are not counted and no
+     * exception is thrown. Tables that do not accept codes are given
+     * the decoded k-tuples.
+     *
+     * @param t the frequency table
+     * @param alphabet the alphabet of the k-tuples
+     * @param k the size of the k-tuples
+     * @param s the sequence
+     * @param from the position of the first k-tuple
+     * @param to the position following the last k-tuple
+     * @param canonical true to count the canonical k-tuples, for DNA only
+     * @return the number of k-tuples counted
+     * @throws NoSuchElementException if s contains a character that
+     * is not a symbol, and the alphabet does not skip them
+     * @throws IllegalArgumentException if canonical is true and the
+     * alphabet is not DNA, or if the table accepts codes and k is
+     * larger than the maxK of the alphabet
+     */
+
+    public static long count(FrequencyTable t, Alphabet alphabet, int k, String s, int from, int to, boolean canonical) {
+
+	if (from >= to) {
+	    return 0;
+	}
+
+	if (canonical && ! alphabet.isNucleotide()) {
+	    throw new IllegalArgumentException("no reverse complement in " + alphabet);
+	}
+
+	if (k > alphabet.maxK()) {
+	    if (t instanceof EncodedFrequencyTable || canonical) {
+		throw new IllegalArgumentException(Integer.toString(k));
+	    }
+	    return countLong(t, alphabet, k, s, from, to);
+	}
+
+	EncodedFrequencyTable table = t instanceof EncodedFrequencyTable ? (EncodedFrequencyTable) t : null;
+
+	int radix = alphabet.radix();
+	boolean dna = alphabet.isNucleotide();
+	long high = alphabet.size(k - 1); // the weight of the first symbol
+	long mask = (1L << (2 * k)) - 1;
+	int shift = 2 * (k - 1);
+
+	long code = 0, reverse = 0, counted = 0;
+	int run = 0; // the number of symbols since the last other character
+
+	for (int i=from; i<to+k-1; i++) {
+
+	    int c = alphabet.index(s.charAt(i));
+
+	    if (c < 0) {
+		if (! alphabet.skips()) {
+		    throw new NoSuchElementException(Character.toString(s.charAt(i)));
+		}
+		run = 0;
+		code = 0;
+		continue;
+	    }
+
+	    if (dna) {
+		code = ((code << 2) | c) & mask;
+		if (canonical) {
+		    reverse = (reverse >>> 2) | ((long) (3 - c) << shift);
+		}
+	    } else {
+		if (run >= k) {
+		    code -= alphabet.index(s.charAt(i-k)) * high;
+		}
+		code = code * radix + c;
+	    }
+
+	    if (++run >= k) {
+		long key = canonical ? Math.min(code, reverse) : code;
+		if (table != null) {
+		    table.update(key);
+		} else {
+		    t.update(alphabet.decode(key, k));
+		}
+		counted++;
+	    }
+	}
+
+	return counted;
+    }
+
+    // Helper method. Counts the k-tuples too long to be encoded, one
+    // substring at a time.
+
+    private static long countLong(FrequencyTable t, Alphabet alphabet, int k, String s, int from, int to) {
+
+	long counted = 0;
+
+	for (int i=from; i<to; i++) {
+
+	    char[] key = new char[k];
+	    boolean valid = true;
+
+	    for (int j=0; j<k && valid; j++) {
+		int c = alphabet.index(s.charAt(i+j));
+		if (c < 0) {
+		    if (! alphabet.skips()) {
+			throw new NoSuchElementException(Character.toString(s.charAt(i+j)));
+		    }
+		    valid = false;
+		} else {
+		    key[j] = alphabet.letters().charAt(c);
+		}
+	    }
+
+	    if (valid) {
+		t.update(new String(key));
+		counted++;
+	    }
+	}
+
+	return counted;
+    }
+
+}
@@ -59,7 +59,7 @@ public class LinearFrequencyTable implements FrequencyTable {
     	Elem iterate = head;
     	while(iterate.next!=head){
     		if(iterate.next.key.compareTo(key)==0){
-    			return iterate.count; 
+    			return iterate.next.count; 
     		}
     		iterate=iterate.next;
     	}
@@ -109,6 +109,39 @@ public class LinearFrequencyTable implements FrequencyTable {
 
     }
 
+    /** Creates an entry for each key and initializes their counts
+     *  to zero. When the table is empty, the keys are appended one
+     *  after the other, in a single pass; otherwise each key is
+     *  inserted with <strong>init</strong>.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws IllegalArgumentException if the keys are not in
+     *  increasing order, or if a key was already present
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+
+    	if (size != 0) {
+    		while (sortedKeys.hasNext())
+    			init(sortedKeys.next());
+    		return;
+    	}
+
+    	Elem last = head; //last element of the list
+    	while (sortedKeys.hasNext()) {
+    		String key = sortedKeys.next();
+    		if (key == null)
+    			throw new IllegalArgumentException("null in initAll");
+    		if (last != head && last.key.compareTo(key) >= 0)
+    			throw new IllegalArgumentException("keys not in order");
+    		last.next = new Elem(key, last, head);
+    		last = last.next;
+    		head.previous = last; //circular
+    		size++;
+    	}
+
+    }
+
     /** The method updates the frequency associated with the key by one.
      *
      *  @param key key with which the specified value is to be associated
@@ -132,14 +165,64 @@ public class LinearFrequencyTable implements FrequencyTable {
 
     }
 
+    /** The method decreases the frequency associated with the key by
+     *  one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the frequency is zero
+     */
+
+    public void decrement(String key) {
+
+    	Elem iterate = head; //point to dummy element
+		while(iterate.next != head && iterate.next.key.compareTo(key)!= 0){
+			iterate=iterate.next;
+		}
+
+		if (iterate.next==head)
+			throw new NoSuchElementException("element not in list");
+
+		if (iterate.next.count == 0)
+			throw new IllegalStateException("count is zero");
+
+		iterate.next.count--;
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. Both lists of keys are in order, they are traversed
+     *  once, side by side.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws NoSuchElementException if a key of other is not found
+     */
+
+    public void add(FrequencyTable other) {
+
+    	Iterator<String> keys = other.keys().iterator();
+    	long[] counts = other.values();
+
+    	Elem iterate = head.next; //first element of this table
+    	for(int i=0; keys.hasNext(); i++){
+    		String key = keys.next();
+    		while(iterate != head && iterate.key.compareTo(key) < 0){ //skip the keys that are not in other
+    			iterate=iterate.next;
+    		}
+    		if(iterate == head || iterate.key.compareTo(key) != 0)
+    			throw new NoSuchElementException(key);
+    		iterate.count += counts[i];
+    	}
+
+    }
+
     /** Returns the list of keys in order, according to the method
      *  <strong>compareTo</strong> of the key objects.
      *
      *  @return the list of keys in order
      */
 
-    public LinkedList<String> keys() {
-    	LinkedList<String> keysList = new LinkedList<String>(); 
+    public List<String> keys() {
+    	List<String> keysList = new CircularArrayList<String>(size); 
 	  
 	    Elem iterate = head; //point to dummy element
     		while(iterate.next != head /*&& iterate.next.key.compareTo(key) < 0*/){  //haven't circled around AND next value is less than key
@@ -172,6 +255,20 @@ public class LinearFrequencyTable implements FrequencyTable {
 
     }
 
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+    	Elem iterate = head.next; //first element
+    	while(iterate != head){  //haven't circled entire way around
+    		visitor.visit(iterate.count);
+    		iterate=iterate.next;
+    	}
+    }
+
     /** Returns a <code>String</code> representations of the elements
      * of the frequency table.
      *  
@@ -0,0 +1,72 @@
+/** The abstract data type <code>List</code>. The elements are
+ * accessed by their position, the first element being at position 0.
+ */
+
+public interface List<E> {
+
+    /** Returns the size of the list.
+     *
+     * @return the size of the list
+     */
+
+    int size();
+
+    /** Inserts the specified element at the beginning of this list.
+     *
+     * @param obj the object to be added
+     */
+
+    void addFirst(E obj);
+
+    /** Inserts the specified element at the end of this list.
+     *
+     * @param obj the object to be added
+     */
+
+    void addLast(E obj);
+
+    /** Inserts the specified element at a specified position of this list.
+     *
+     * @param pos the specified position
+     * @param obj the object to be added
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    void add(int pos, E obj);
+
+    /** Removes the first element from this list.
+     */
+
+    void removeFirst();
+
+    /** Removes the last element from this list.
+     */
+
+    void removeLast();
+
+    /** Remove the element at the specified position.
+     *
+     * @param pos the specified position
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    void remove(int pos);
+
+    /** Returns the element found at the specied position.
+     *
+     * @param pos the specified position
+     * @return the element found at the specified position
+     * @throws IndexOutOfBoundsException if the specified position is out of range
+     */
+
+    E get(int pos);
+
+    /**
+     * Returns an iterator for this list.
+     *
+     * @return an iterator for this list
+     */
+
+    Iterator<E> iterator();
+
+}
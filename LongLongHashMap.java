@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/** A map from <code>long</code> keys to <code>long</code> values
+ *  using open addressing and linear probing. The keys and values are
+ *  stored in primitive arrays, no object is created per entry. The
+ *  keys must not be negative, -1 marks the empty slots.
+ */
+
+public class LongLongHashMap {
+
+    private static final long EMPTY = -1;
+
+    private long[] keys; // the keys, EMPTY for the free slots
+    private long[] values; // the values, at the same position as the keys
+    private int mask; // the capacity minus one, the capacity is a power of two
+    private int size; // the number of entries
+
+    /** Constructs an empty map.
+     */
+
+    public LongLongHashMap() {
+        this(16);
+    }
+
+    /** Constructs an empty map able to hold the specified number of
+     *  entries without growing.
+     *
+     * @param expected the expected number of entries
+     */
+
+    public LongLongHashMap(int expected) {
+
+        int capacity = 16;
+
+        while (capacity < 2 * expected) {
+            capacity = capacity << 1;
+        }
+
+        allocate(capacity);
+    }
+
+    /** Returns the number of entries of this map.
+     *
+     * @return the number of entries
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns <code>true</code> if this map contains the key. A
+     *  negative key is never contained.
+     *
+     * @param key the key
+     * @return <code>true</code> if this map contains the key
+     */
+
+    public boolean containsKey(long key) {
+        return key >= 0 && keys[slot(key)] == key;
+    }
+
+    /** Returns the value associated with the key, or 0 if the key is
+     *  absent or negative.
+     *
+     * @param key the key
+     * @return the value associated with the key, or 0
+     */
+
+    public long get(long key) {
+
+        if (key < 0) {
+            return 0;
+        }
+
+        int i = slot(key);
+
+        if (keys[i] == key) {
+            return values[i];
+        }
+
+        return 0;
+    }
+
+    /** Adds delta to the value associated with the key. An absent key
+     *  is inserted with the value delta.
+     *
+     * @param key the key
+     * @param delta the amount to be added
+     * @throws IllegalArgumentException if the key is negative
+     */
+
+    public void add(long key, long delta) {
+
+        if (key < 0) {
+            throw new IllegalArgumentException(Long.toString(key));
+        }
+
+        int i = slot(key);
+
+        if (keys[i] == key) {
+            values[i] += delta;
+            return;
+        }
+
+        keys[i] = key;
+        values[i] = delta;
+        size++;
+
+        if (2 * size > mask) {
+            rehash(2 * (mask + 1));
+        }
+    }
+
+    /** Returns the keys of this map, in no particular order.
+     *
+     * @return the keys of this map
+     */
+
+    public long[] keys() {
+
+        long[] result = new long[size];
+        int counter = 0;
+
+        for (int i=0; i<keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                result[counter++] = keys[i];
+            }
+        }
+
+        return result;
+    }
+
+    // Helper method. Returns the slot holding the key, or the free
+    // slot where it should be inserted.
+
+    private int slot(long key) {
+
+        int i = hash(key) & mask;
+
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+
+        return i;
+    }
+
+    // Helper method. Mixes the bits of the key (finalizer of
+    // MurmurHash3), the codes of k-tuples are far from uniform in
+    // their low bits.
+
+    private static int hash(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (key ^ (key >>> 33));
+    }
+
+    // Helper method. Allocates empty arrays of the specified capacity.
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    // Helper method. Moves the entries to arrays of the specified
+    // capacity.
+
+    private void rehash(int capacity) {
+
+        long[] oldKeys = keys, oldValues = values;
+
+        allocate(capacity);
+
+        for (int i=0; i<oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+                size++;
+            }
+        }
+    }
+
+}
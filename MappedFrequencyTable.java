@@ -0,0 +1,275 @@
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/** Implements the interface <code>FrequencyTable</code>, read-only,
+ *  over counts stored in buffers, typically the memory-mapped body of
+ *  a profile file (see <code>ProfileFile</code>). The counts are read
+ *  in place, they are not copied to the heap.
+ *
+ *  In the dense layout, the buffers hold the count of every k-tuple,
+ *  indexed by code. In the sparse layout, they hold pairs (code,
+ *  count) sorted by code, looked up by binary search.
+ */
+
+public class MappedFrequencyTable implements EncodedFrequencyTable {
+
+    // Number of longs per buffer, a power of two
+
+    static final int WINDOW_LONGS = 1 << 27;
+
+    private final int k; // the size of the keys
+    private final Alphabet alphabet; // the symbols of the keys
+    private final boolean dense; // the layout of the buffers
+    private final long size; // the number of keys
+    private final ByteBuffer[] windows; // the longs of the body
+
+    /** Constructs a table over the longs of the buffers. Each buffer
+     *  but the last holds exactly WINDOW_LONGS longs.
+     *
+     * @param k the size of the keys
+     * @param dense true for the dense layout, false for the sparse one
+     * @param size the number of keys
+     * @param windows the longs of the body
+     */
+
+    public MappedFrequencyTable(int k, boolean dense, long size, ByteBuffer[] windows) {
+        this(k, dense, size, windows, Alphabet.DNA);
+    }
+
+    /** Constructs a table over the longs of the buffers, for keys
+     *  over the alphabet. Each buffer but the last holds exactly
+     *  WINDOW_LONGS longs.
+     *
+     * @param k the size of the keys
+     * @param dense true for the dense layout, false for the sparse one
+     * @param size the number of keys
+     * @param windows the longs of the body
+     * @param alphabet the symbols of the keys
+     */
+
+    public MappedFrequencyTable(int k, boolean dense, long size, ByteBuffer[] windows, Alphabet alphabet) {
+        this.k = k;
+        this.alphabet = alphabet;
+        this.dense = dense;
+        this.size = size;
+        this.windows = windows;
+    }
+
+    /** The size of the frequency table.
+     *
+     * @return the size of the frequency table
+     */
+
+    public int size() {
+        return (int) size;
+    }
+
+    /** Returns the frequency value associated with this key.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(String key) {
+
+        long code = key.length() == k ? alphabet.encode(key) : -1;
+
+        if (code < 0) {
+            throw new NoSuchElementException(key);
+        }
+
+        return get(code);
+    }
+
+    /** Returns the frequency value associated with the key having
+     *  this code.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(long code) {
+
+        if (dense) {
+            if (code < 0 || code >= size) {
+                throw new NoSuchElementException(Long.toString(code));
+            }
+            return at(code);
+        }
+
+        long low = 0, high = size - 1;
+
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            long test = at(2 * middle);
+            if (test == code) {
+                return at(2 * middle + 1);
+            } else if (test < code) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        throw new NoSuchElementException(Long.toString(code));
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void init(String key) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void init(long code) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void update(String key) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void update(long code) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void decrement(String key) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void decrement(long code) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Not supported, the table is read-only.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void add(FrequencyTable other) {
+        throw new UnsupportedOperationException("read-only table");
+    }
+
+    /** Returns the list of keys in order, according to the method
+     *  <strong>compareTo</strong> of the key objects.
+     *
+     *  @return the list of keys in order
+     */
+
+    public List<String> keys() {
+
+        List<String> keysList = new CircularArrayList<String>((int) size);
+
+        for (long i=0; i<size; i++) {
+            keysList.addLast(alphabet.decode(dense ? i : at(2 * i), k));
+        }
+
+        return keysList;
+    }
+
+    /** Returns an array containing the frequencies of the keys in the
+     *  order specified by the method <strong>compareTo</strong> of
+     *  the key objects.
+     *
+     *  @return an array of frequency counts
+     */
+
+    public long[] values() {
+
+        long[] values = new long[(int) size];
+
+        for (int i=0; i<values.length; i++) {
+            values[i] = dense ? at(i) : at(2L * i + 1);
+        }
+
+        return values;
+    }
+
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+        for (long i=0; i<size; i++) {
+            visitor.visit(dense ? at(i) : at(2 * i + 1));
+        }
+    }
+
+    // Helper method. Returns the long at the specified index of the
+    // body.
+
+    private long at(long index) {
+        ByteBuffer window = windows[(int) (index / WINDOW_LONGS)];
+        return window.getLong((int) (index % WINDOW_LONGS) * 8);
+    }
+
+    /** Returns a <code>String</code> representations of the elements
+     * of the frequency table.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        StringBuffer str = new StringBuffer("{");
+
+        for (long i=0; i<size; i++) {
+            str.append("{key="+alphabet.decode(dense ? i : at(2 * i), k)+", count="+(dense ? at(i) : at(2 * i + 1))+"}");
+            if (i < size - 1) {
+                str.append(",");
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -0,0 +1,532 @@
+/** Computes several distances between two k-tuple profiles in a
+ *  single pass over their counts. The metrics are selected by
+ *  combining the flags below, for instance <code>COSINE |
+ *  BRAY_CURTIS</code>; the counts of each k-tuple present in either
+ *  profile are read once, and every sum needed by the selected
+ *  metrics is updated from them. The profiles are counted once,
+ *  whatever the number of metrics.
+ *
+ *  For counts x and y of a k-tuple in profiles of n and m k-tuples,
+ *  and frequencies p = x / n and q = y / m:
+ *
+ *  <pre>
+ *  EUCLIDEAN       sum (p - q)^2, as <strong>Distance.compare</strong>
+ *  COSINE          1 - sum x y / sqrt(sum x^2 sum y^2)
+ *  MANHATTAN       sum |p - q|
+ *  JENSEN_SHANNON  sqrt(JSD(p, q)), the divergence in bits
+ *  D2              sum x y, the number of pairs of shared k-tuples
+ *  D2_STAR         (1 - D2* / sqrt(D2*(x, x) D2*(y, y))) / 2
+ *  BRAY_CURTIS     sum |x - y| / sum (x + y)
+ *  </pre>
+ *
+ *  D2 is a similarity, the others are distances, between 0 and 1 but
+ *  for EUCLIDEAN and MANHATTAN, which are between 0 and 2. D2* (Reinert
+ *  et al., 2009) centres the counts on those expected if the symbols
+ *  were drawn independently: the probability of a k-tuple is the
+ *  product of the frequencies of its symbols, estimated from the first
+ *  symbols of the k-tuples of both profiles, plus one for each symbol
+ *  so that none has a probability of zero. Only D2_STAR needs them,
+ *  so a first pass over the keys is made only when it is selected.
+ */
+
+public class Metrics {
+
+    /** The squared Euclidean distance of the frequencies. */
+
+    public static final int EUCLIDEAN = 1;
+
+    /** The cosine distance of the counts. */
+
+    public static final int COSINE = 2;
+
+    /** The Manhattan distance of the frequencies. */
+
+    public static final int MANHATTAN = 4;
+
+    /** The Jensen-Shannon distance of the frequencies. */
+
+    public static final int JENSEN_SHANNON = 8;
+
+    /** The D2 statistic, the inner product of the counts. */
+
+    public static final int D2 = 16;
+
+    /** The d2* dissimilarity of the centred counts. */
+
+    public static final int D2_STAR = 32;
+
+    /** The Bray-Curtis dissimilarity of the counts. */
+
+    public static final int BRAY_CURTIS = 64;
+
+    /** All the metrics. */
+
+    public static final int ALL = 127;
+
+    private static final double LN_2 = Math.log(2.0);
+
+    private final int selected; // the flags of the metrics computed
+    private final double na, nb; // the numbers of k-tuples of the profiles
+
+    // the sums over the k-tuples present in either profile
+
+    private double xx, yy, xy; // the products of the counts
+    private double sx, sy; // the counts
+    private double squares; // the squared differences of the frequencies
+    private double absolutes; // the absolute differences of the frequencies
+    private double differences; // the absolute differences of the counts
+    private double entropy; // the terms of the Jensen-Shannon divergence, in nats
+    private double xxw, yyw, xyw; // the products of the counts over the probabilities
+
+    // the probabilities of the symbols, for D2_STAR
+
+    private double[] background;
+
+    // Constructs the sums for profiles of na and nb k-tuples.
+
+    private Metrics(int selected, long na, long nb) {
+        this.selected = selected;
+        this.na = na;
+        this.nb = nb;
+    }
+
+    /** Returns the selected metrics of the k-tuple profiles of the
+     *  two input strings. Each string is counted once, as by
+     *  <strong>Distance.profile</strong>; the tables are released
+     *  afterwards, unless they belong to the cache.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param a input string
+     * @param b input string
+     * @param selected the flags of the metrics
+     * @return the metrics
+     * @throws IllegalArgumentException if no metric is selected, or if
+     * the tables are sketches
+     */
+
+    public static Metrics compute(int k, String a, String b, int selected) {
+        Profile pa = null, pb = null;
+
+        try {
+            pa = Distance.profile(k, a);
+            pb = Distance.profile(k, b);
+            return compute(pa, pb, selected);
+        } finally {
+            Distance.drop(pa);
+            Distance.drop(pb);
+        }
+    }
+
+    /** Returns the selected metrics of two profiles.
+     *
+     * @param a profile
+     * @param b profile
+     * @param selected the flags of the metrics
+     * @return the metrics
+     * @throws IllegalArgumentException if no metric is selected, if
+     * the profiles differ in k, in alphabet or in canonical mode, or if
+     * either table is a sketch, which does not keep its keys
+     */
+
+    public static Metrics compute(Profile a, Profile b, int selected) {
+
+        if (selected <= 0 || (selected & ~ALL) != 0) {
+            throw new IllegalArgumentException(Integer.toString(selected));
+        }
+
+        if (a.k() != b.k() || ! a.alphabet().letters().equals(b.alphabet().letters()) || a.canonical() != b.canonical()) {
+            throw new IllegalArgumentException(a.k() + " " + a.alphabet() + (a.canonical() ? " canonical" : "")
+                                               + " and " + b.k() + " " + b.alphabet() + (b.canonical() ? " canonical" : ""));
+        }
+
+        if (a.table() instanceof SketchFrequencyTable || b.table() instanceof SketchFrequencyTable) {
+            throw new IllegalArgumentException("a sketch does not keep its keys");
+        }
+
+        Metrics metrics = new Metrics(selected, a.total(), b.total());
+        boolean centred = (selected & D2_STAR) != 0;
+
+        if (Distance.dense(a) && Distance.dense(b)) {
+
+            // the keys are the codes 0 to r^k - 1, in order
+
+            long[] xs = a.table().values();
+            long[] ys = b.table().values();
+
+            if (centred) {
+                metrics.background(a.alphabet(), a.k(), xs, ys);
+            }
+
+            for (int i=0; i<xs.length; i++) {
+                if (xs[i] != 0 || ys[i] != 0) {
+                    metrics.add(xs[i], ys[i], centred ? metrics.probability(a.alphabet(), a.k(), i) : 1.0);
+                }
+            }
+
+        } else if (a.table() instanceof SparseFrequencyTable && b.table() instanceof SparseFrequencyTable) {
+
+            SparseFrequencyTable fa = (SparseFrequencyTable) a.table();
+            SparseFrequencyTable fb = (SparseFrequencyTable) b.table();
+            long[] as = fa.codes(), bs = fb.codes();
+
+            if (centred) {
+                metrics.background(a.alphabet(), a.k(), fa, as, fb, bs);
+            }
+
+            // the codes of a, then those of b absent from a
+
+            for (int i=0; i<as.length; i++) {
+                metrics.add(fa.get(as[i]), fb.get(as[i]), centred ? metrics.probability(a.alphabet(), a.k(), as[i]) : 1.0);
+            }
+
+            for (int j=0; j<bs.length; j++) {
+                if (! fa.contains(bs[j])) {
+                    metrics.add(0, fb.get(bs[j]), centred ? metrics.probability(a.alphabet(), a.k(), bs[j]) : 1.0);
+                }
+            }
+
+        } else {
+
+            // the sorted lists of keys are merged, as in Distance
+
+            List<String> ka = a.table().keys(), kb = b.table().keys();
+            long[] xs = a.table().values(), ys = b.table().values();
+
+            if (centred) {
+                metrics.background(a.alphabet(), ka, xs, kb, ys);
+            }
+
+            Iterator<String> as = ka.iterator(), bs = kb.iterator();
+            String s = as.hasNext() ? as.next() : null;
+            String t = bs.hasNext() ? bs.next() : null;
+            int i = 0, j = 0;
+
+            while (s != null || t != null) {
+
+                int test = s == null ? 1 : t == null ? -1 : s.compareTo(t);
+                String key = test <= 0 ? s : t;
+                long x = 0, y = 0;
+
+                if (test <= 0) {
+                    x = xs[i++];
+                    s = as.hasNext() ? as.next() : null;
+                }
+
+                if (test >= 0) {
+                    y = ys[j++];
+                    t = bs.hasNext() ? bs.next() : null;
+                }
+
+                metrics.add(x, y, centred ? metrics.probability(a.alphabet(), key) : 1.0);
+            }
+        }
+
+        return metrics;
+    }
+
+    // Helper method. Adds the counts x and y of a k-tuple whose
+    // probability is w to the sums; this is the body of the fused
+    // loop. The Jensen-Shannon and d2* terms, which need a logarithm
+    // or a division, are only computed if they are selected.
+
+    private void add(long x, long y, double w) {
+
+        double p = na > 0 ? x / na : 0.0;
+        double q = nb > 0 ? y / nb : 0.0;
+        double d = p - q;
+
+        xx += (double) x * x;
+        yy += (double) y * y;
+        xy += (double) x * y;
+        sx += x;
+        sy += y;
+        squares += d * d;
+        absolutes += Math.abs(d);
+        differences += Math.abs(x - y);
+
+        if ((selected & JENSEN_SHANNON) != 0) {
+            double mean = (p + q) / 2;
+            if (p > 0) {
+                entropy += p * Math.log(p / mean);
+            }
+            if (q > 0) {
+                entropy += q * Math.log(q / mean);
+            }
+        }
+
+        if ((selected & D2_STAR) != 0) {
+            xxw += (double) x * x / w;
+            yyw += (double) y * y / w;
+            xyw += (double) x * y / w;
+        }
+    }
+
+    // Helper method. Sets the probabilities of the symbols to the
+    // frequencies of the first symbols of the k-tuples counted in the
+    // dense arrays, indexed by code.
+
+    private void background(Alphabet alphabet, int k, long[] xs, long[] ys) {
+
+        long[] counts = new long[alphabet.radix()];
+        long high = alphabet.size(k - 1);
+
+        for (int i=0; i<xs.length; i++) {
+            counts[(int) (i / high)] += xs[i] + ys[i];
+        }
+
+        background(counts);
+    }
+
+    // Helper method. Sets the probabilities of the symbols from the
+    // sparse tables.
+
+    private void background(Alphabet alphabet, int k, SparseFrequencyTable fa, long[] as, SparseFrequencyTable fb, long[] bs) {
+
+        long[] counts = new long[alphabet.radix()];
+        long high = alphabet.size(k - 1);
+
+        for (int i=0; i<as.length; i++) {
+            counts[(int) (as[i] / high)] += fa.get(as[i]);
+        }
+
+        for (int j=0; j<bs.length; j++) {
+            counts[(int) (bs[j] / high)] += fb.get(bs[j]);
+        }
+
+        background(counts);
+    }
+
+    // Helper method. Sets the probabilities of the symbols from the
+    // lists of keys and their counts.
+
+    private void background(Alphabet alphabet, List<String> ka, long[] xs, List<String> kb, long[] ys) {
+
+        long[] counts = new long[alphabet.radix()];
+
+        Iterator<String> keys = ka.iterator();
+
+        for (int i=0; keys.hasNext(); i++) {
+            counts[alphabet.index(keys.next().charAt(0))] += xs[i];
+        }
+
+        keys = kb.iterator();
+
+        for (int j=0; keys.hasNext(); j++) {
+            counts[alphabet.index(keys.next().charAt(0))] += ys[j];
+        }
+
+        background(counts);
+    }
+
+    // Helper method. Sets the probabilities of the symbols to their
+    // counts plus one, divided by the sum.
+
+    private void background(long[] counts) {
+
+        long total = 0;
+
+        for (int c=0; c<counts.length; c++) {
+            total += counts[c] + 1;
+        }
+
+        background = new double[counts.length];
+
+        for (int c=0; c<counts.length; c++) {
+            background[c] = (counts[c] + 1) / (double) total;
+        }
+    }
+
+    // Helper method. Returns the probability of the k-tuple having
+    // this code, the product of the probabilities of its symbols.
+
+    private double probability(Alphabet alphabet, int k, long code) {
+
+        double w = 1.0;
+
+        for (int j=0; j<k; j++) {
+            w *= background[(int) (code % alphabet.radix())];
+            code /= alphabet.radix();
+        }
+
+        return w;
+    }
+
+    // Helper method. Returns the probability of the k-tuple.
+
+    private double probability(Alphabet alphabet, String key) {
+
+        double w = 1.0;
+
+        for (int j=0; j<key.length(); j++) {
+            w *= background[alphabet.index(key.charAt(j))];
+        }
+
+        return w;
+    }
+
+    /** Returns the value of one of the selected metrics.
+     *
+     * @param metric the flag of the metric
+     * @return the value of the metric
+     * @throws IllegalArgumentException if metric is not a single flag
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double get(int metric) {
+
+        switch (metric) {
+        case EUCLIDEAN: return euclidean();
+        case COSINE: return cosine();
+        case MANHATTAN: return manhattan();
+        case JENSEN_SHANNON: return jensenShannon();
+        case D2: return d2();
+        case D2_STAR: return d2Star();
+        case BRAY_CURTIS: return brayCurtis();
+        default: throw new IllegalArgumentException(Integer.toString(metric));
+        }
+    }
+
+    /** Returns the squared Euclidean distance of the frequencies, the
+     *  k-tuples distance of <strong>Distance.compare</strong>.
+     *
+     * @return the squared Euclidean distance
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double euclidean() {
+        check(EUCLIDEAN);
+        return squares;
+    }
+
+    /** Returns one minus the cosine of the angle between the vectors
+     *  of counts; 0 if both profiles are empty, 1 if only one is.
+     *
+     * @return the cosine distance
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double cosine() {
+
+        check(COSINE);
+
+        if (xx == 0 || yy == 0) {
+            return xx == yy ? 0.0 : 1.0;
+        }
+
+        return Math.max(0.0, 1.0 - xy / Math.sqrt(xx * yy));
+    }
+
+    /** Returns the Manhattan distance of the frequencies.
+     *
+     * @return the Manhattan distance
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double manhattan() {
+        check(MANHATTAN);
+        return absolutes;
+    }
+
+    /** Returns the Jensen-Shannon distance of the frequencies, the
+     *  square root of the Jensen-Shannon divergence in bits.
+     *
+     * @return the Jensen-Shannon distance
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double jensenShannon() {
+        check(JENSEN_SHANNON);
+        return Math.sqrt(Math.max(0.0, entropy / (2 * LN_2)));
+    }
+
+    /** Returns the D2 statistic, the sum over the k-tuples of the
+     *  products of their counts. It is a similarity: it grows with the
+     *  number of shared k-tuples.
+     *
+     * @return the D2 statistic
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double d2() {
+        check(D2);
+        return xy;
+    }
+
+    /** Returns the d2* dissimilarity of the counts centred on the
+     *  counts expected under the background; 0 if either profile is
+     *  empty. The sums over the k-tuples absent from both profiles,
+     *  which are not visited, are accounted for in closed form: the
+     *  expected counts sum to the numbers of k-tuples.
+     *
+     * @return the d2* dissimilarity
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double d2Star() {
+
+        check(D2_STAR);
+
+        if (sx == 0 || sy == 0) {
+            return 0.0;
+        }
+
+        // sum (x - sx w) (y - sy w) / w = sum x y / w - sx sy, and
+        // likewise for the squares
+
+        double ab = xyw - sx * sy;
+        double aa = xxw - sx * sx;
+        double bb = yyw - sy * sy;
+
+        if (aa <= 0 || bb <= 0) {
+            return 0.0;
+        }
+
+        return Math.min(1.0, Math.max(0.0, (1.0 - ab / Math.sqrt(aa * bb)) / 2));
+    }
+
+    /** Returns the Bray-Curtis dissimilarity of the counts; 0 if both
+     *  profiles are empty.
+     *
+     * @return the Bray-Curtis dissimilarity
+     * @throws IllegalStateException if the metric was not selected
+     */
+
+    public double brayCurtis() {
+        check(BRAY_CURTIS);
+        return sx + sy == 0 ? 0.0 : differences / (sx + sy);
+    }
+
+    // Helper method. Throws IllegalStateException unless the metric
+    // was selected.
+
+    private void check(int metric) {
+        if ((selected & metric) == 0) {
+            throw new IllegalStateException("metric " + metric + " not computed");
+        }
+    }
+
+    /** Returns a <code>String</code> representation of the selected
+     *  metrics.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        String[] names = {"euclidean", "cosine", "manhattan", "jensenShannon", "d2", "d2Star", "brayCurtis"};
+        StringBuffer str = new StringBuffer("{");
+
+        for (int i=0; i<names.length; i++) {
+            if ((selected & (1 << i)) != 0) {
+                if (str.length() > 1) {
+                    str.append(", ");
+                }
+                str.append(names[i] + "=" + get(1 << i));
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
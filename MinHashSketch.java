@@ -0,0 +1,243 @@
+import java.util.Arrays;
+
+/** A bottom-s MinHash sketch of the set of k-tuples of a sequence:
+ *  the s smallest hash values of its distinct k-tuples. The sketches
+ *  of two sequences estimate the Jaccard similarity of their sets of
+ *  k-tuples, the number of shared k-tuples over the number of
+ *  distinct k-tuples of either, in time proportional to s, with a
+ *  standard error of about 1 / sqrt(s). A sketch is a cheap screen
+ *  before the exact k-tuple distance.
+ *
+ *  The k-tuples are read with a rolling window, as in
+ *  <strong>Kmers.count</strong>. Lowercase bases are read as
+ *  uppercase ones; the k-tuples overlapping any other character are
+ *  skipped. In canonical mode, a k-tuple and its reverse complement
+ *  are hashed as one, so that a sequence and its reverse complement
+ *  have the same sketch. Sequences over another
+ *  <strong>Alphabet</strong> are read as in
+ *  <strong>KmerWindow</strong>.
+ */
+
+public class MinHashSketch {
+
+    private final int k; // the size of the k-tuples
+    private final int size; // the largest number of hash values kept
+    private final boolean canonical; // true if the canonical k-tuples are hashed
+    private final Alphabet alphabet; // the symbols of the k-tuples
+    private long[] hashes; // the smallest hash values, in increasing order
+
+    /** Constructs the sketch of the k-tuples of a sequence, hashing
+     *  the canonical k-tuples if the canonical mode is selected (see
+     *  <strong>Utils.setCanonical</strong>), over the alphabet
+     *  selected.
+     *
+     * @param k the size of the k-tuples
+     * @param size the number of hash values kept
+     * @param s the sequence
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, or if size is not positive
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public MinHashSketch(int k, int size, String s) {
+        this(k, size, s, Utils.isCanonical());
+    }
+
+    /** Constructs the sketch of the k-tuples of a sequence, hashing
+     *  the canonical k-tuples or not, over the alphabet selected.
+     *
+     * @param k the size of the k-tuples
+     * @param size the number of hash values kept
+     * @param s the sequence
+     * @param canonical true to hash the canonical k-tuples
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, or if size is not positive
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public MinHashSketch(int k, int size, String s, boolean canonical) {
+        this(k, size, s, canonical, Utils.getAlphabet());
+    }
+
+    /** Constructs the sketch of the k-tuples of a sequence over the
+     *  alphabet, hashing the canonical k-tuples or not.
+     *
+     * @param k the size of the k-tuples
+     * @param size the number of hash values kept
+     * @param s the sequence
+     * @param canonical true to hash the canonical k-tuples, for DNA only
+     * @param alphabet the symbols of the sequence
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, if size is not positive, or if canonical is
+     * true and the alphabet is not DNA
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public MinHashSketch(int k, int size, String s, boolean canonical, Alphabet alphabet) {
+
+        if (k < 1 || k > alphabet.maxK()) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        if (size < 1) {
+            throw new IllegalArgumentException(Integer.toString(size));
+        }
+
+        this.k = k;
+        this.size = size;
+        this.canonical = canonical;
+        this.alphabet = alphabet;
+
+        // the hash values are gathered in a buffer of 2 size; when it
+        // is full, it is sorted and cut back to the size smallest
+        // distinct values, whose largest bounds the values kept
+
+        long[] buffer = new long[2 * size];
+        int n = 0;
+        long bound = Long.MAX_VALUE;
+
+        KmerWindow window = new KmerWindow(k, canonical, alphabet);
+
+        for (int i=0; i<s.length(); i++) {
+
+            long code = window.push(s.charAt(i));
+
+            if (code >= 0) {
+
+                long h = hash(code);
+
+                if (h <= bound) {
+
+                    buffer[n++] = h;
+
+                    if (n == buffer.length) {
+                        n = compact(buffer, n, size);
+                        if (n == size) {
+                            bound = buffer[n-1];
+                        }
+                    }
+                }
+            }
+        }
+
+        n = compact(buffer, n, size);
+        hashes = Arrays.copyOf(buffer, n);
+    }
+
+    /** Returns the size of the k-tuples.
+     *
+     * @return the size of the k-tuples
+     */
+
+    public int k() {
+        return k;
+    }
+
+    /** Returns true if the canonical k-tuples are hashed.
+     *
+     * @return true if the sketch is canonical
+     */
+
+    public boolean canonical() {
+        return canonical;
+    }
+
+    /** Returns the alphabet of the k-tuples.
+     *
+     * @return the alphabet
+     */
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    /** Returns the number of hash values of the sketch, less than
+     *  the size asked for if the sequence has fewer distinct
+     *  k-tuples.
+     *
+     * @return the number of hash values
+     */
+
+    public int size() {
+        return hashes.length;
+    }
+
+    /** Returns an estimate of the Jaccard similarity of the sets of
+     *  k-tuples of the two sequences: the fraction of the s smallest
+     *  hash values of their union that are in both sketches, where s
+     *  is the smaller of the two sizes asked for.
+     *
+     * @param other the sketch of the other sequence
+     * @return the estimated Jaccard similarity, between 0 and 1
+     * @throws IllegalArgumentException if the sketches have different k
+     * or alphabets, or if only one of them is canonical
+     */
+
+    public double similarity(MinHashSketch other) {
+
+        if (other.k != k) {
+            throw new IllegalArgumentException("k = " + k + " and " + other.k);
+        }
+
+        if (other.canonical != canonical) {
+            throw new IllegalArgumentException("a canonical sketch can only be compared to a canonical sketch");
+        }
+
+        if (! other.alphabet.letters().equals(alphabet.letters())) {
+            throw new IllegalArgumentException(alphabet + " and " + other.alphabet);
+        }
+
+        int s = Math.min(size, other.size);
+        int i = 0, j = 0, union = 0, shared = 0;
+
+        while (union < s && i < hashes.length && j < other.hashes.length) {
+            if (hashes[i] < other.hashes[j]) {
+                i++;
+            } else if (hashes[i] > other.hashes[j]) {
+                j++;
+            } else {
+                shared++;
+                i++;
+                j++;
+            }
+            union++;
+        }
+
+        // the remaining values of the longer sketch complete the union
+
+        union = Math.min(s, union + (hashes.length - i) + (other.hashes.length - j));
+
+        return union == 0 ? 0.0 : shared / (double) union;
+    }
+
+    // Helper method. Sorts buffer[0, n), removes the duplicates and
+    // keeps at most size values; returns the number of values kept.
+
+    private static int compact(long[] buffer, int n, int size) {
+
+        Arrays.sort(buffer, 0, n);
+
+        int m = 0;
+
+        for (int i=0; i<n && m<size; i++) {
+            if (m == 0 || buffer[i] != buffer[m-1]) {
+                buffer[m++] = buffer[i];
+            }
+        }
+
+        return m;
+    }
+
+    // Helper method. Returns a hash value of the code, a non-negative
+    // long (the finalizer of MurmurHash3).
+
+    private static long hash(long code) {
+        code = (code ^ (code >>> 33)) * 0xff51afd7ed558ccdL;
+        code = (code ^ (code >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (code ^ (code >>> 33)) >>> 1;
+    }
+
+}
@@ -0,0 +1,308 @@
+/** Builds the k-tuple profiles of a sequence for every k of a range
+ *  with a single scan of the sequence. Only the k-tuples of the
+ *  largest size, kmax, are counted; the counts of the (j)-tuples are
+ *  then derived from those of the (j+1)-tuples: each occurrence of a
+ *  j-tuple is the prefix of an occurrence of a (j+1)-tuple, except
+ *  the one ending a run of valid bases. The scan only notes the
+ *  j-tuples ending each run, so the cost is one pass over the
+ *  sequence plus one pass over each table, instead of one pass over
+ *  the sequence per k.
+ *
+ *  Lowercase bases are counted as uppercase ones; any other
+ *  character, such as N, ends a run: the k-tuples overlapping it are
+ *  skipped. In canonical mode, the counts of each size are folded
+ *  onto the canonical k-tuples once derived, since a prefix of a
+ *  canonical k-tuple need not be canonical.
+ *
+ *  Sequences over another <strong>Alphabet</strong> are read as in
+ *  <strong>KmerWindow</strong>, the codes being numbers in base r
+ *  for r symbols: the prefix of a code is then its quotient by r,
+ *  and its suffix of j symbols its remainder modulo r^j.
+ */
+
+public class MultiProfile {
+
+    // Largest size of the k-tuples counted in an array indexed by
+    // code, rather than in a map
+
+    private static final int MAX_DENSE_K = 12;
+
+    /** Returns the k-tuple profiles of the sequence for k from kmin
+     *  to kmax; the profile for k is at index k - kmin. The tables
+     *  are of the current type of <strong>Utils</strong>, and the
+     *  canonical k-tuples are counted if the canonical mode is
+     *  selected, over the alphabet selected.
+     *
+     * @param kmin the smallest size of the k-tuples
+     * @param kmax the largest size of the k-tuples
+     * @param s input string
+     * @return the profiles, by increasing k
+     * @throws IllegalArgumentException unless 1 &lt;= kmin &lt;= kmax &lt;= maxK
+     * of the alphabet
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public static Profile[] profiles(int kmin, int kmax, String s) {
+        return profiles(kmin, kmax, s, Utils.isCanonical());
+    }
+
+    /** Returns the k-tuple profiles of the sequence for k from kmin
+     *  to kmax, counting the canonical k-tuples or not; the profile
+     *  for k is at index k - kmin. The tables are of the current type
+     *  of <strong>Utils</strong>, over the alphabet selected.
+     *
+     * @param kmin the smallest size of the k-tuples
+     * @param kmax the largest size of the k-tuples
+     * @param s input string
+     * @param canonical true to count the canonical k-tuples
+     * @return the profiles, by increasing k
+     * @throws IllegalArgumentException unless 1 &lt;= kmin &lt;= kmax &lt;= maxK
+     * of the alphabet
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public static Profile[] profiles(int kmin, int kmax, String s, boolean canonical) {
+        return profiles(kmin, kmax, s, canonical, Utils.getAlphabet());
+    }
+
+    /** Returns the k-tuple profiles of the sequence over the alphabet
+     *  for k from kmin to kmax, counting the canonical k-tuples or
+     *  not; the profile for k is at index k - kmin. The tables are of
+     *  the current type of <strong>Utils</strong>.
+     *
+     * @param kmin the smallest size of the k-tuples
+     * @param kmax the largest size of the k-tuples
+     * @param s input string
+     * @param canonical true to count the canonical k-tuples, for DNA only
+     * @param alphabet the symbols of the sequence
+     * @return the profiles, by increasing k
+     * @throws IllegalArgumentException unless 1 &lt;= kmin &lt;= kmax &lt;= maxK
+     * of the alphabet, or if canonical is true and the alphabet is
+     * not DNA
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public static Profile[] profiles(int kmin, int kmax, String s, boolean canonical, Alphabet alphabet) {
+
+        if (kmin < 1 || kmin > kmax || kmax > alphabet.maxK()) {
+            throw new IllegalArgumentException(kmin + ".." + kmax);
+        }
+
+        if (canonical && ! alphabet.isNucleotide()) {
+            throw new IllegalArgumentException("no reverse complement in " + alphabet);
+        }
+
+        // the counts of the j-tuples, for j from kmin to kmax, in an
+        // array if all the j-tuples are likely to occur, in a map
+        // otherwise
+
+        long[][] dense = new long[kmax + 1][];
+        LongLongHashMap[] sparse = new LongLongHashMap[kmax + 1];
+        long[] totals = new long[kmax + 1];
+
+        for (int j=kmin; j<=kmax; j++) {
+            long size = alphabet.size(j);
+            if (j <= MAX_DENSE_K && size <= 1L << (2 * MAX_DENSE_K) && size <= Math.max(1 << 16, 2L * s.length())) {
+                dense[j] = new long[(int) size];
+            } else {
+                sparse[j] = new LongLongHashMap();
+            }
+        }
+
+        // the scan: the kmax-tuples, and the j-tuples ending each run
+
+        boolean dna = alphabet.isNucleotide();
+        int radix = alphabet.radix();
+        long high = alphabet.size(kmax - 1); // the weight of the first symbol
+        long mask = (1L << (2 * kmax)) - 1;
+        long code = 0;
+        int run = 0; // the length of the current run of valid bases
+
+        for (int i=0; i<=s.length(); i++) {
+
+            int base = i < s.length() ? alphabet.index(s.charAt(i)) : -1;
+
+            if (base < 0 && i < s.length() && ! alphabet.skips()) {
+                throw new java.util.NoSuchElementException(Character.toString(s.charAt(i)));
+            }
+
+            if (base < 0) {
+                for (int j=kmin; j<kmax && j<=run; j++) {
+                    increment(dense[j], sparse[j], code % alphabet.size(j), 1);
+                }
+                for (int j=kmin; j<=kmax && j<=run; j++) {
+                    totals[j] += run - j + 1;
+                }
+                run = 0;
+                continue;
+            }
+
+            if (dna) {
+                code = ((code << 2) | base) & mask;
+            } else {
+                code = (run == 0 ? 0 : run < kmax ? code : code % high) * radix + base;
+            }
+            run++;
+
+            if (run >= kmax) {
+                increment(dense[kmax], sparse[kmax], code, 1);
+            }
+        }
+
+        // the marginals: the (j+1)-tuples are added to their prefixes
+
+        for (int j=kmax-1; j>=kmin; j--) {
+            if (dense[j+1] != null) {
+                long[] counts = dense[j+1];
+                for (int c=0; c<counts.length; c++) {
+                    if (counts[c] != 0) {
+                        increment(dense[j], sparse[j], dna ? c >>> 2 : c / radix, counts[c]);
+                    }
+                }
+            } else {
+                long[] codes = sparse[j+1].keys();
+                for (int c=0; c<codes.length; c++) {
+                    increment(dense[j], sparse[j], dna ? codes[c] >>> 2 : codes[c] / radix, sparse[j+1].get(codes[c]));
+                }
+            }
+        }
+
+        // the counts of a k-tuple and of its reverse complement are
+        // only added once all the marginals are derived
+
+        if (canonical) {
+            for (int j=kmin; j<=kmax; j++) {
+                if (dense[j] != null) {
+                    fold(j, dense[j]);
+                } else {
+                    sparse[j] = fold(j, sparse[j]);
+                }
+            }
+        }
+
+        Profile[] profiles = new Profile[kmax - kmin + 1];
+
+        for (int j=kmin; j<=kmax; j++) {
+            profiles[j - kmin] = new Profile(j, table(j, alphabet, dense[j], sparse[j]), totals[j], alphabet, canonical);
+        }
+
+        return profiles;
+    }
+
+    /** Returns the k-tuple distances of the two input strings for k
+     *  from kmin to kmax; the distance for k is at index k - kmin.
+     *  Each string is scanned once, and the tables are released
+     *  afterwards.
+     *
+     * @param kmin the smallest size of the k-tuples
+     * @param kmax the largest size of the k-tuples
+     * @param a input string
+     * @param b input string
+     * @return the k-tuples distances, by increasing k
+     * @throws IllegalArgumentException unless 1 &lt;= kmin &lt;= kmax &lt;= maxK
+     * of the alphabet
+     */
+
+    public static double[] compare(int kmin, int kmax, String a, String b) {
+
+        Profile[] pa = profiles(kmin, kmax, a);
+        Profile[] pb = null;
+
+        try {
+
+            pb = profiles(kmin, kmax, b);
+
+            double[] distances = new double[pa.length];
+
+            for (int i=0; i<pa.length; i++) {
+                distances[i] = Distance.compare(pa[i], pb[i]);
+            }
+
+            return distances;
+
+        } finally {
+            release(pa);
+            release(pb);
+        }
+    }
+
+    // Helper method. Releases the tables of the profiles, which are
+    // never cached.
+
+    private static void release(Profile[] profiles) {
+        if (profiles != null) {
+            for (int i=0; i<profiles.length; i++) {
+                Distance.release(profiles[i].table());
+            }
+        }
+    }
+
+    // Helper method. Adds delta to the count of the code, in the
+    // array or in the map.
+
+    private static void increment(long[] dense, LongLongHashMap sparse, long code, long delta) {
+        if (dense != null) {
+            dense[(int) code] += delta;
+        } else {
+            sparse.add(code, delta);
+        }
+    }
+
+    // Helper method. Adds the count of each j-tuple to that of its
+    // canonical j-tuple, leaving the others at 0.
+
+    private static void fold(int j, long[] counts) {
+        for (int c=0; c<counts.length; c++) {
+            long canonical = Kmers.canonical(c, j);
+            if (canonical != c) {
+                counts[(int) canonical] += counts[c];
+                counts[c] = 0;
+            }
+        }
+    }
+
+    // Helper method. Returns the counts of the canonical j-tuples.
+
+    private static LongLongHashMap fold(int j, LongLongHashMap counts) {
+
+        LongLongHashMap folded = new LongLongHashMap(counts.size());
+        long[] codes = counts.keys();
+
+        for (int c=0; c<codes.length; c++) {
+            folded.add(Kmers.canonical(codes[c], j), counts.get(codes[c]));
+        }
+
+        return folded;
+    }
+
+    // Helper method. Returns a table of the current type holding the
+    // counts of the j-tuples over the alphabet. The packed and sparse
+    // tables are built over the counts, the others are filled from
+    // them.
+
+    private static FrequencyTable table(int j, Alphabet alphabet, long[] dense, LongLongHashMap sparse) {
+
+        FrequencyTable counts;
+
+        if (dense != null) {
+            counts = new PackedFrequencyTable(j, alphabet, dense);
+        } else {
+            counts = new SparseFrequencyTable(j, alphabet, sparse);
+        }
+
+        String type = Utils.getType();
+
+        if (type.equals("PACKED") && dense != null || type.equals("SPARSE") && sparse != null) {
+            return counts;
+        }
+
+        FrequencyTable t = Distance.newTable(j, alphabet);
+        t.add(counts);
+
+        return t;
+    }
+
+}
@@ -0,0 +1,639 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.NoSuchElementException;
+
+/** Implements the interface <code>FrequencyTable</code> for DNA
+ *  k-tuples with the counts stored outside of the Java heap, in
+ *  direct buffers, indexed by code as in
+ *  <code>PackedFrequencyTable</code>. A table of 4^k counters is not
+ *  scanned by the garbage collector, however large it is.
+ *
+ *  Each counter is an unsigned 32-bit integer holding the count plus
+ *  one, zero marking the keys that were not initialized; the direct
+ *  buffers are allocated filled with zeros. A count too large for its
+ *  counter is moved to a map on the heap, if the table was built with
+ *  overflow promotion; otherwise, the update fails.
+ *
+ *  The memory is released by <strong>close</strong>; the table can
+ *  not be used afterwards. The tables counted for a single
+ *  comparison, by <strong>Distance</strong>, <strong>Metrics</strong>
+ *  or <strong>MultiProfile</strong>, or merged while counting in
+ *  parallel, are closed by them, and a <strong>SlidingProfile</strong>
+ *  closes its table when it is closed; the tables of the profiles
+ *  returned to the caller, by <strong>Distance.profile</strong> or
+ *  <strong>FastaReader</strong> for instance, must be closed by the
+ *  caller. A table that is not closed is released only when the
+ *  garbage collector collects it.
+ *
+ *  A table held by a <strong>ProfileCache</strong> is owned by the
+ *  cache, and may be read by several threads at once: closing it has
+ *  no effect, and its memory is released when it is collected, after
+ *  it was evicted and dropped by every caller.
+ *
+ *  Direct memory is bounded by the option
+ *  <code>-XX:MaxDirectMemorySize</code> of the JVM, which defaults to
+ *  the largest heap size, <code>-Xmx</code>. To hold tables larger
+ *  than the heap, the option must be set to a larger value.
+ *
+ *  Closing frees the buffers at once through
+ *  <code>sun.misc.Unsafe.invokeCleaner</code>, when the JDK provides
+ *  it; otherwise, close only drops the buffers, which are freed when
+ *  they are collected.
+ */
+
+public class OffHeapFrequencyTable implements EncodedFrequencyTable, AutoCloseable {
+
+    // 4^15 counters, the largest number of keys of a FrequencyTable
+
+    private static final int MAX_K = 15;
+
+    // Number of counters per buffer, a power of two
+
+    private static final int WINDOW_INTS = 1 << 28;
+
+    // The stored value of a counter moved to the overflow map, and
+    // the largest count held by a counter
+
+    private static final long PROMOTED = 0xffffffffL;
+    private static final long MAX_COUNT = PROMOTED - 2;
+
+    // The instance of sun.misc.Unsafe and its method invokeCleaner,
+    // or null if the JDK does not provide them
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+
+        Object unsafe = null;
+        Method cleaner = null;
+
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            cleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            unsafe = null;
+            cleaner = null;
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    private int k; // the length of the keys, 0 until the first init
+    private long capacity; // 4^k
+    private ByteBuffer[] windows; // the counters, null once closed
+    private final boolean promote; // true to move large counts to the overflow map
+    private LongLongHashMap overflow; // the large counts, by code
+    private int size; // the number of keys that were initialized
+    private boolean closed;
+    private volatile boolean shared; // true once held by a cache, which owns it
+
+    /** Constructs an empty <strong>FrequencyTable</strong>, with
+     *  overflow promotion. The length of the keys is set by the
+     *  first call to <strong>init</strong>.
+     */
+
+    public OffHeapFrequencyTable() {
+        this.promote = true;
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k, with overflow promotion.
+     *
+     * @param k the size of the keys
+     * @throws IllegalArgumentException if k is not between 1 and 15
+     */
+
+    public OffHeapFrequencyTable(int k) {
+        this(k, true);
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k.
+     *
+     * @param k the size of the keys
+     * @param promote true to move the counts exceeding 2^32 - 3 to a
+     * map on the heap, false to reject them
+     * @throws IllegalArgumentException if k is not between 1 and 15
+     */
+
+    public OffHeapFrequencyTable(int k, boolean promote) {
+        this.promote = promote;
+        allocate(k);
+    }
+
+    /** The size of the frequency table.
+     *
+     * @return the size of the frequency table
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns the frequency value associated with this key.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public long get(String key) {
+        return get(code(key, false));
+    }
+
+    /** Returns the frequency value associated with the key having
+     *  this code.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public long get(long code) {
+        return count(code, stored(check(code)));
+    }
+
+    /** Creates an entry in the frequency table and initializes its
+     *  count to zero. The first key determines the length of all the
+     *  keys of this table.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if it is not a k-tuple over the alphabet A, C, G, T
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public void init(String key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("null in init");
+        }
+
+        if (windows == null && ! closed) {
+            allocate(key.length());
+        }
+
+        init(code(key, true));
+    }
+
+    /** Creates an entry for the key having this code and
+     *  initializes its count to zero.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if the code is out of range
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public void init(long code) {
+
+        open();
+
+        if (code < 0 || code >= capacity) {
+            throw new IllegalArgumentException(Long.toString(code));
+        }
+
+        if (stored(code) != 0) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        store(code, 1);
+        size++;
+    }
+
+    /** Creates an entry for each key and initializes their counts
+     *  to zero.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws IllegalArgumentException if a key was already present,
+     *  or if it is not a k-tuple over the alphabet A, C, G, T
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+        while (sortedKeys.hasNext()) {
+            init(sortedKeys.next());
+        }
+    }
+
+    /** The method updates the frequency associated with the key by one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed, or if
+     *  the count overflows a table without promotion
+     */
+
+    public void update(String key) {
+        update(code(key, false));
+    }
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed, or if
+     *  the count overflows a table without promotion
+     */
+
+    public void update(long code) {
+        increase(check(code), 1);
+    }
+
+    /** The method decreases the frequency associated with the key by
+     *  one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed, or if
+     *  the frequency is zero
+     */
+
+    public void decrement(String key) {
+        decrement(code(key, false));
+    }
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the table was closed, or if
+     *  the frequency is zero
+     */
+
+    public void decrement(long code) {
+
+        long value = stored(check(code));
+
+        if (count(code, value) == 0) {
+            throw new IllegalStateException("count is zero");
+        } else if (value == PROMOTED) {
+            overflow.add(code, -1);
+        } else if (value == 1) {
+            throw new IllegalStateException("count is zero");
+        } else {
+            store(code, value - 1);
+        }
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. Two off-heap tables of the same size are added counter
+     *  by counter.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws NoSuchElementException if a key of other is not found
+     *  @throws IllegalStateException if the table was closed, or if a
+     *  count overflows a table without promotion
+     */
+
+    public void add(FrequencyTable other) {
+
+        open();
+
+        if (other instanceof OffHeapFrequencyTable && ((OffHeapFrequencyTable) other).k == k) {
+
+            OffHeapFrequencyTable that = (OffHeapFrequencyTable) other;
+
+            if (! that.openOrEmpty()) {
+                return;
+            }
+
+            for (long code=0; code<capacity; code++) {
+                long value = that.stored(code);
+                if (value != 0) {
+                    long count = that.count(code, value);
+                    if (count != 0) {
+                        increase(check(code), count);
+                    }
+                }
+            }
+
+            return;
+        }
+
+        Iterator<String> keys = other.keys().iterator();
+        long[] values = other.values();
+
+        for (int i=0; keys.hasNext(); i++) {
+            String key = keys.next();
+            if (values[i] != 0) {
+                increase(check(code(key, false)), values[i]);
+            }
+        }
+    }
+
+    /** Returns the list of keys in order, according to the method
+     *  <strong>compareTo</strong> of the key objects.
+     *
+     *  @return the list of keys in order
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public List<String> keys() {
+
+        List<String> keysList = new CircularArrayList<String>(size);
+
+        if (openOrEmpty()) {
+            for (long code=0; code<capacity; code++) {
+                if (stored(code) != 0) {
+                    keysList.addLast(Kmers.decode(code, k));
+                }
+            }
+        }
+
+        return keysList;
+    }
+
+    /** Returns an array containing the frequencies of the keys in the
+     *  order specified by the method <strong>compareTo</strong> of
+     *  the key objects.
+     *
+     *  @return an array of frequency counts
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public long[] values() {
+
+        final long[] values = new long[size];
+
+        forEachCount(new CountVisitor() {
+                private int i = 0;
+                public void visit(long count) {
+                    values[i++] = count;
+                }
+            });
+
+        return values;
+    }
+
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     *  @throws IllegalStateException if the table was closed
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+
+        if (! openOrEmpty()) {
+            return;
+        }
+
+        for (long code=0; code<capacity; code++) {
+            long value = stored(code);
+            if (value != 0) {
+                visitor.visit(count(code, value));
+            }
+        }
+    }
+
+    /** Returns the squared Euclidean distance between the frequencies
+     *  of two off-heap tables holding all the k-tuples, read in place:
+     *  no vector of frequencies is built on the heap.
+     *
+     * @param a the counts of the first sequence
+     * @param na the number of k-tuples of the first sequence
+     * @param b the counts of the second sequence
+     * @param nb the number of k-tuples of the second sequence
+     * @return the k-tuple distance
+     * @throws IllegalArgumentException if the tables have different sizes
+     * @throws IllegalStateException if a table was closed
+     */
+
+    public static double distance(OffHeapFrequencyTable a, long na, OffHeapFrequencyTable b, long nb) {
+
+        a.open();
+        b.open();
+
+        if (a.k != b.k) {
+            throw new IllegalArgumentException("k = " + a.k + " and " + b.k);
+        }
+
+        double sa = na == 0 ? 0.0 : 1.0 / na;
+        double sb = nb == 0 ? 0.0 : 1.0 / nb;
+        double s0 = 0.0, s1 = 0.0;
+
+        for (long code=0; code<a.capacity; code+=2) {
+            double d0 = a.count(code, a.stored(code)) * sa - b.count(code, b.stored(code)) * sb;
+            double d1 = a.count(code+1, a.stored(code+1)) * sa - b.count(code+1, b.stored(code+1)) * sb;
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+        }
+
+        return s0 + s1;
+    }
+
+    /** Releases the memory of the counters. The table can not be used
+     *  afterwards; closing it again has no effect, and so has closing
+     *  a table held by a cache.
+     */
+
+    public void close() {
+
+        if (closed || shared) {
+            return;
+        }
+
+        closed = true;
+
+        ByteBuffer[] released = windows;
+
+        windows = null;
+        overflow = null;
+
+        if (released != null) {
+            for (int i=0; i<released.length; i++) {
+                free(released[i]);
+            }
+        }
+    }
+
+    // Marks the table as owned by a cache: it is never closed, since
+    // other threads may be reading it.
+
+    void share() {
+        shared = true;
+    }
+
+    // Helper method. Allocates zeroed counters for keys of size k.
+
+    private void allocate(int k) {
+
+        if (k < 1 || k > MAX_K) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.k = k;
+        this.capacity = 1L << (2 * k);
+
+        int n = (int) ((capacity + WINDOW_INTS - 1) / WINDOW_INTS);
+
+        windows = new ByteBuffer[n];
+
+        for (int i=0; i<n; i++) {
+            long ints = Math.min(WINDOW_INTS, capacity - (long) i * WINDOW_INTS);
+            windows[i] = ByteBuffer.allocateDirect((int) (4 * ints)).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    // Helper method. Adds delta to the count of the key.
+
+    private void increase(long code, long delta) {
+
+        long value = stored(code);
+
+        if (value == PROMOTED) {
+            overflow.add(code, delta);
+            return;
+        }
+
+        long count = value - 1 + delta;
+
+        if (count <= MAX_COUNT) {
+            store(code, count + 1);
+            return;
+        }
+
+        if (! promote) {
+            throw new IllegalStateException("counter overflow");
+        }
+
+        if (overflow == null) {
+            overflow = new LongLongHashMap();
+        }
+
+        overflow.add(code, count);
+        store(code, PROMOTED);
+    }
+
+    // Helper method. Returns the count of the key, given its stored
+    // value.
+
+    private long count(long code, long value) {
+        return value == PROMOTED ? overflow.get(code) : value == 0 ? 0 : value - 1;
+    }
+
+    // Helper method. Returns the stored value of the counter.
+
+    private long stored(long code) {
+        return windows[(int) (code / WINDOW_INTS)].getInt((int) (code % WINDOW_INTS) << 2) & 0xffffffffL;
+    }
+
+    // Helper method. Sets the stored value of the counter.
+
+    private void store(long code, long value) {
+        windows[(int) (code / WINDOW_INTS)].putInt((int) (code % WINDOW_INTS) << 2, (int) value);
+    }
+
+    // Helper method. Returns the code if its key was initialized.
+
+    private long check(long code) {
+
+        open();
+
+        if (code < 0 || code >= capacity || stored(code) == 0) {
+            throw new NoSuchElementException(Long.toString(code));
+        }
+
+        return code;
+    }
+
+    // Helper method. Returns the code of the key; a key that is not
+    // a k-tuple over the alphabet A, C, G, T is rejected with an
+    // IllegalArgumentException from init, a NoSuchElementException
+    // otherwise.
+
+    private long code(String key, boolean init) {
+
+        long code = key == null || key.length() != k ? -1 : Kmers.encode(key);
+
+        if (code < 0) {
+            if (init) {
+                throw new IllegalArgumentException(key);
+            }
+            throw new NoSuchElementException(key);
+        }
+
+        return code;
+    }
+
+    // Helper method. Throws an IllegalStateException if the table was
+    // closed or never allocated.
+
+    private void open() {
+
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+
+        if (windows == null) {
+            throw new IllegalStateException("no size of keys");
+        }
+    }
+
+    // Helper method. Returns true if the counters can be read, false
+    // if the table is empty.
+
+    private boolean openOrEmpty() {
+
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+
+        return windows != null;
+    }
+
+    // Helper method. Frees the memory of a direct buffer now, rather
+    // than when it is collected, if the JVM allows it.
+
+    private static void free(ByteBuffer buffer) {
+
+        if (INVOKE_CLEANER == null) {
+            return; // the buffer is freed when it is collected
+        }
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the buffer is freed when it is collected
+        }
+    }
+
+    /** Returns a <code>String</code> representations of the elements
+     * of the frequency table.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        StringBuffer str = new StringBuffer("{");
+
+        if (openOrEmpty()) {
+            for (long code=0; code<capacity; code++) {
+                long value = stored(code);
+                if (value != 0) {
+                    if (str.length() > 1) {
+                        str.append(",");
+                    }
+                    str.append("{key="+Kmers.decode(code, k)+", count="+count(code, value)+"}");
+                }
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -0,0 +1,444 @@
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+/** Implements the interface <code>FrequencyTable</code> for DNA
+ *  k-tuples using a direct-indexed array. Each key over the alphabet
+ *  A, C, G, T is packed into an integer, two bits per base, the first
+ *  base being the most significant. The packed order is therefore the
+ *  lexicographic order of the keys, and the counts are kept in a flat
+ *  array of size 4^k. The length of the keys, k, is set by the first
+ *  call to <strong>init</strong>. The index of a key is its code, as
+ *  computed by <strong>Kmers.encode</strong>.
+ *
+ *  A table constructed for another <strong>Alphabet</strong> packs
+ *  its keys in the same way, as numbers in base r for an alphabet of
+ *  r symbols, in an array of size r^k.
+ */
+
+public class PackedFrequencyTable implements EncodedFrequencyTable {
+
+    // 4^15 is the largest power of four that fits in an array
+
+    private static final int MAX_K = 15;
+
+    private final Alphabet alphabet; // the symbols of the keys
+    private int k; // the length of the keys, 0 until the first init
+    private long[] counts; // the counts, indexed by packed key
+    private BitSet present; // the indices of the keys that were initialized
+    private int size; // the number of keys that were initialized
+
+    /** Constructs an empty <strong>FrequencyTable</strong>.
+     */
+
+    public PackedFrequencyTable() {
+        alphabet = Alphabet.DNA;
+        k = 0;
+        counts = null;
+        present = null;
+        size = 0;
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k.
+     *
+     * @param k the size of the keys
+     * @throws IllegalArgumentException if k is not between 1 and 15
+     */
+
+    public PackedFrequencyTable(int k) {
+        this(k, Alphabet.DNA);
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k over the alphabet.
+     *
+     * @param k the size of the keys
+     * @param alphabet the symbols of the keys
+     * @throws IllegalArgumentException if k is less than 1, or if
+     * the alphabet has more than 2^30 k-tuples
+     */
+
+    public PackedFrequencyTable(int k, Alphabet alphabet) {
+        this.alphabet = alphabet;
+        allocate(k);
+        size = 0;
+    }
+
+    // Constructs a table holding all the keys of size k over the
+    // alphabet, with these counts, indexed by code. The array is not
+    // copied.
+
+    PackedFrequencyTable(int k, Alphabet alphabet, long[] counts) {
+
+        if (k < 1 || k > alphabet.maxK() || counts.length != alphabet.size(k)) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.alphabet = alphabet;
+        this.k = k;
+        this.counts = counts;
+        this.present = new BitSet(counts.length);
+        this.present.set(0, counts.length);
+        this.size = counts.length;
+    }
+
+    /** The size of the frequency table.
+     *
+     * @return the size of the frequency table
+     */
+
+    public int size() {
+        return size;
+    }
+
+    /** Returns the frequency value associated with this key.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(String key) {
+
+        int index = index(key);
+
+        if (index < 0 || ! present.get(index)) {
+            throw new NoSuchElementException(key);
+        }
+
+        return counts[index];
+    }
+
+    /** Returns the frequency value associated with the key having
+     *  this code.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public long get(long code) {
+
+        if (counts == null || code < 0 || code >= counts.length || ! present.get((int) code)) {
+            throw new NoSuchElementException(Long.toString(code));
+        }
+
+        return counts[(int) code];
+    }
+
+    /** Creates an entry in the frequency table and initializes its
+     *  count to zero. The first key determines the length of all the
+     *  keys of this table.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if it is not a k-tuple over the alphabet of the table
+     */
+
+    public void init(String key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("null in init");
+        }
+
+        if (counts == null) {
+            allocate(key.length());
+        }
+
+        int index = index(key);
+
+        if (index < 0) {
+            throw new IllegalArgumentException(key);
+        }
+
+        if (present.get(index)) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        present.set(index);
+        size++;
+    }
+
+    /** Creates an entry for the key having this code and
+     *  initializes its count to zero. The table must have been
+     *  constructed for a given size of keys.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if the code is out of range
+     */
+
+    public void init(long code) {
+
+        if (counts == null || code < 0 || code >= counts.length) {
+            throw new IllegalArgumentException(Long.toString(code));
+        }
+
+        if (present.get((int) code)) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        present.set((int) code);
+        size++;
+    }
+
+    /** Creates an entry for each key and initializes their counts
+     *  to zero.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws IllegalArgumentException if a key was already present,
+     *  or if it is not a k-tuple over the alphabet of the table
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+        while (sortedKeys.hasNext()) {
+            init(sortedKeys.next());
+        }
+    }
+
+    /** The method updates the frequency associated with the key by one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void update(String key) {
+
+        int index = index(key);
+
+        if (index < 0 || ! present.get(index)) {
+            throw new NoSuchElementException(key);
+        }
+
+        counts[index]++;
+    }
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     */
+
+    public void update(long code) {
+
+        if (counts == null || code < 0 || code >= counts.length || ! present.get((int) code)) {
+            throw new NoSuchElementException(Long.toString(code));
+        }
+
+        counts[(int) code]++;
+    }
+
+    /** The method decreases the frequency associated with the key by
+     *  one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the frequency is zero
+     */
+
+    public void decrement(String key) {
+
+        int index = index(key);
+
+        if (index < 0 || ! present.get(index)) {
+            throw new NoSuchElementException(key);
+        }
+
+        decrementAt(index);
+    }
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the frequency is zero
+     */
+
+    public void decrement(long code) {
+
+        if (counts == null || code < 0 || code >= counts.length || ! present.get((int) code)) {
+            throw new NoSuchElementException(Long.toString(code));
+        }
+
+        decrementAt((int) code);
+    }
+
+    // Helper method. Decreases the count at this packed index.
+
+    private void decrementAt(int index) {
+
+        if (counts[index] == 0) {
+            throw new IllegalStateException("count is zero");
+        }
+
+        counts[index]--;
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. Two packed tables of the same size and alphabet are
+     *  added slot by slot.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws NoSuchElementException if a key of other is not found
+     */
+
+    public void add(FrequencyTable other) {
+
+        if (other instanceof PackedFrequencyTable && ((PackedFrequencyTable) other).k == k
+            && ((PackedFrequencyTable) other).alphabet.letters().equals(alphabet.letters())) {
+
+            PackedFrequencyTable that = (PackedFrequencyTable) other;
+
+            if (that.counts == null) {
+                return;
+            }
+
+            for (int i = that.present.nextSetBit(0); i >= 0; i = that.present.nextSetBit(i+1)) {
+                if (! present.get(i)) {
+                    throw new NoSuchElementException(key(i));
+                }
+                counts[i] += that.counts[i];
+            }
+
+            return;
+        }
+
+        Iterator<String> keys = other.keys().iterator();
+        long[] values = other.values();
+
+        for (int i=0; keys.hasNext(); i++) {
+            String key = keys.next();
+            int index = index(key);
+            if (index < 0 || ! present.get(index)) {
+                throw new NoSuchElementException(key);
+            }
+            counts[index] += values[i];
+        }
+    }
+
+    /** Returns the list of keys in order, according to the method
+     *  <strong>compareTo</strong> of the key objects.
+     *
+     *  @return the list of keys in order
+     */
+
+    public List<String> keys() {
+
+        List<String> keysList = new CircularArrayList<String>(size);
+
+        if (present != null) {
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i+1)) {
+                keysList.addLast(key(i));
+            }
+        }
+
+        return keysList;
+    }
+
+    /** Returns an array containing the frequencies of the keys in the
+     *  order specified by the method <strong>compareTo</strong> of
+     *  the key objects.
+     *
+     *  @return an array of frequency counts
+     */
+
+    public long[] values() {
+
+        long[] values = new long[size];
+
+        if (counts == null) {
+            return values;
+        }
+
+        if (size == counts.length) {
+            System.arraycopy(counts, 0, values, 0, size);
+        } else {
+            int counter = 0;
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i+1)) {
+                values[counter++] = counts[i];
+            }
+        }
+
+        return values;
+    }
+
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+
+        if (counts == null) {
+            return;
+        }
+
+        if (size == counts.length) {
+            for (int i=0; i<counts.length; i++) {
+                visitor.visit(counts[i]);
+            }
+        } else {
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i+1)) {
+                visitor.visit(counts[i]);
+            }
+        }
+    }
+
+    // Helper method. Allocates the counts for keys of size k.
+
+    private void allocate(int k) {
+
+        if (k < 1 || k > alphabet.maxK() || alphabet.size(k) > 1L << (2 * MAX_K)) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.k = k;
+        counts = new long[(int) alphabet.size(k)];
+        present = new BitSet(counts.length);
+    }
+
+    // Helper method. Returns the packed index of the key, or -1 if
+    // the key is not a k-tuple over the alphabet.
+
+    private int index(String key) {
+
+        if (key == null || counts == null || key.length() != k) {
+            return -1;
+        }
+
+        return (int) alphabet.encode(key);
+    }
+
+    // Helper method. Returns the key stored at this packed index.
+
+    private String key(int index) {
+        return alphabet.decode(index, k);
+    }
+
+    /** Returns a <code>String</code> representations of the elements
+     * of the frequency table.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        StringBuffer str = new StringBuffer("{");
+
+        if (present != null) {
+            for (int i = present.nextSetBit(0); i >= 0; i = present.nextSetBit(i+1)) {
+                if (str.length() > 1) {
+                    str.append(",");
+                }
+                str.append("{key="+key(i)+", count="+counts[i]+"}");
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -0,0 +1,137 @@
+/** The k-tuple profile of a sequence: a frequency table holding the
+ *  counts of the k-tuples, together with the number of k-tuples that
+ *  were counted, their alphabet, and whether the canonical k-tuples
+ *  were counted (see <strong>Kmers.canonical</strong>). Only profiles
+ *  of the same kind can be compared.
+ */
+
+public class Profile {
+
+    private final int k; // the size of the k-tuples
+    private final FrequencyTable table; // the counts of the k-tuples
+    private final long total; // the number of k-tuples counted
+    private final Alphabet alphabet; // the symbols of the k-tuples
+    private final boolean canonical; // true if the canonical k-tuples were counted
+
+    /** Constructs a profile of DNA k-tuples.
+     *
+     * @param k the size of the k-tuples
+     * @param table the counts of the k-tuples
+     * @param total the number of k-tuples counted
+     */
+
+    public Profile(int k, FrequencyTable table, long total) {
+        this(k, table, total, Alphabet.DNA);
+    }
+
+    /** Constructs a profile of the k-tuples read on one strand.
+     *
+     * @param k the size of the k-tuples
+     * @param table the counts of the k-tuples
+     * @param total the number of k-tuples counted
+     * @param alphabet the symbols of the k-tuples
+     */
+
+    public Profile(int k, FrequencyTable table, long total, Alphabet alphabet) {
+        this(k, table, total, alphabet, false);
+    }
+
+    /** Constructs a profile.
+     *
+     * @param k the size of the k-tuples
+     * @param table the counts of the k-tuples
+     * @param total the number of k-tuples counted
+     * @param alphabet the symbols of the k-tuples
+     * @param canonical true if the canonical k-tuples were counted
+     */
+
+    public Profile(int k, FrequencyTable table, long total, Alphabet alphabet, boolean canonical) {
+
+        if (table == null || alphabet == null) {
+            throw new NullPointerException();
+        }
+
+        this.k = k;
+        this.table = table;
+        this.total = total;
+        this.alphabet = alphabet;
+        this.canonical = canonical;
+    }
+
+    /** Returns true if the canonical k-tuples were counted, a k-tuple
+     *  and its reverse complement being counted together.
+     *
+     * @return true for a canonical profile
+     */
+
+    public boolean canonical() {
+        return canonical;
+    }
+
+    /** Returns the alphabet of the k-tuples.
+     *
+     * @return the alphabet
+     */
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    /** Returns the size of the k-tuples.
+     *
+     * @return the size of the k-tuples
+     */
+
+    public int k() {
+        return k;
+    }
+
+    /** Returns the frequency table of this profile.
+     *
+     * @return the frequency table
+     */
+
+    public FrequencyTable table() {
+        return table;
+    }
+
+    /** Returns the number of k-tuples counted.
+     *
+     * @return the number of k-tuples
+     */
+
+    public long total() {
+        return total;
+    }
+
+    /** Returns the frequencies of the k-tuples, that is their counts
+     *  divided by the number of k-tuples, in the order of the keys of
+     *  the table. All the frequencies are zero if no k-tuple was
+     *  counted.
+     *
+     * @return the frequencies of the k-tuples
+     * @throws IllegalArgumentException if the table is a sketch, which
+     * does not keep its keys
+     */
+
+    public double[] normalized() {
+
+        if (table instanceof SketchFrequencyTable) {
+            throw new IllegalArgumentException("a sketch does not keep its keys");
+        }
+
+        final double[] xs = new double[table.size()];
+
+        if (total > 0) {
+            table.forEachCount(new CountVisitor() {
+                    private int i = 0;
+                    public void visit(long count) {
+                        xs[i++] = count / (double) total;
+                    }
+                });
+        }
+
+        return xs;
+    }
+
+}
@@ -0,0 +1,231 @@
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A cache of k-tuple profiles, bounded by the estimated size of the
+ *  tables in bytes. A profile is identified by the SHA-256 digest of
+ *  the sequence, the size of the k-tuples and the type of table, so
+ *  that a sequence compared many times is counted only once. When
+ *  the cache is full, the least recently used profiles are evicted.
+ *
+ *  The cached profiles are shared: their tables must not be updated.
+ *  The methods of this class can be called by several threads at
+ *  once.
+ *
+ *  The cache is the only owner of the tables it holds: callers must
+ *  never close them, and <strong>close</strong> has no effect on a
+ *  cached OFFHEAP table. An evicted profile may still be held by a
+ *  caller, so its table is not closed either: the memory of an
+ *  OFFHEAP table is released when the table is collected. A profile
+ *  too large for the cache is not held, and belongs to the caller.
+ */
+
+public class ProfileCache {
+
+    private final long capacity; // the largest number of bytes held
+    private final LinkedHashMap<String,Profile> profiles; // in access order
+    private long bytes; // the estimated number of bytes held
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /** Constructs an empty cache.
+     *
+     * @param capacity the largest number of bytes of the profiles held
+     */
+
+    public ProfileCache(long capacity) {
+        this.capacity = capacity;
+        this.profiles = new LinkedHashMap<String,Profile>(16, 0.75f, true);
+        this.bytes = 0;
+    }
+
+    /** Returns the profile of the sequence for k-tuples of size k.
+     *  The profile is built with <strong>Distance.profile</strong>,
+     *  with the current type of table and counting mode, unless it is
+     *  in the cache.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param s input string
+     * @return the k-tuple profile of s
+     */
+
+    public Profile profile(int k, String s) {
+        return profile(k, s, Utils.isCanonical());
+    }
+
+    /** Returns the profile of the sequence for k-tuples of size k,
+     *  counting the canonical k-tuples or not, with the current type
+     *  of table, unless it is in the cache.
+     *
+     * @param k the size of the k-tuples (k-grams)
+     * @param s input string
+     * @param canonical true to count the canonical k-tuples
+     * @return the k-tuple profile of s
+     */
+
+    public Profile profile(int k, String s, boolean canonical) {
+
+        String key = digest(s) + ":" + k + ":" + Utils.describeType() + (canonical ? ":canonical" : "");
+
+        synchronized (this) {
+            Profile p = profiles.get(key);
+            if (p != null) {
+                hits++;
+                return p;
+            }
+            misses++;
+        }
+
+        // counted without holding the lock; two threads missing the
+        // same profile both count it, the last one is kept
+
+        Profile p = Distance.count(k, s, canonical, Utils.getAlphabet());
+        long size = bytes(p);
+
+        synchronized (this) {
+
+            if (size > capacity) {
+                return p;
+            }
+
+            if (p.table() instanceof OffHeapFrequencyTable) {
+                ((OffHeapFrequencyTable) p.table()).share();
+            }
+
+            Profile previous = profiles.put(key, p);
+
+            if (previous != null) {
+                bytes -= bytes(previous);
+            }
+
+            bytes += size;
+
+            java.util.Iterator<Map.Entry<String,Profile>> i = profiles.entrySet().iterator();
+
+            while (bytes > capacity && i.hasNext()) {
+                bytes -= bytes(i.next().getValue());
+                i.remove();
+                evictions++;
+            }
+        }
+
+        return p;
+    }
+
+    /** Returns the number of profiles found in the cache.
+     *
+     * @return the number of hits
+     */
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Returns the number of profiles that had to be built.
+     *
+     * @return the number of misses
+     */
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Returns the number of profiles evicted to make room.
+     *
+     * @return the number of evictions
+     */
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /** Returns the number of profiles in the cache.
+     *
+     * @return the number of profiles
+     */
+
+    public synchronized int size() {
+        return profiles.size();
+    }
+
+    /** Returns the estimated number of bytes of the profiles in the
+     *  cache.
+     *
+     * @return the number of bytes
+     */
+
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    /** Removes all the profiles; the counters are kept.
+     */
+
+    public synchronized void clear() {
+        profiles.clear();
+        bytes = 0;
+    }
+
+    // Helper method. Returns an estimate of the memory used by the
+    // table of the profile, from the size of its entries.
+
+    static long bytes(Profile p) {
+
+        FrequencyTable t = p.table();
+
+        if (t instanceof SketchFrequencyTable) {
+            return (long) ((SketchFrequencyTable) t).width() * ((SketchFrequencyTable) t).depth() * 8;
+        }
+
+        long size = t.size();
+
+        if (t instanceof PackedFrequencyTable) {
+            return p.alphabet().size(p.k()) * 8 + p.alphabet().size(p.k()) / 8;
+        } else if (t instanceof SparseFrequencyTable) {
+            return size * 32;
+        } else if (t instanceof ConcurrentFrequencyTable) {
+            return (1L << (2 * p.k())) * 4 + size * 48;
+        } else if (t instanceof OffHeapFrequencyTable) {
+            return (1L << (2 * p.k())) * 4; // off the heap, but memory still
+        } else if (t instanceof MappedFrequencyTable) {
+            return 64; // the counts are not on the heap
+        } else {
+            return size * (64 + 2 * p.k()); // an element and its key
+        }
+    }
+
+    // Helper method. Returns the SHA-256 digest of the sequence, in
+    // hexadecimal. The characters are encoded by blocks, the
+    // sequence is not copied as a whole.
+
+    private static String digest(String s) {
+
+        MessageDigest md;
+
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // can't happen, every JVM has SHA-256
+        }
+
+        final int BLOCK = 1 << 16;
+
+        for (int i=0; i<s.length(); i+=BLOCK) {
+            md.update(s.substring(i, Math.min(s.length(), i+BLOCK)).getBytes(StandardCharsets.UTF_8));
+        }
+
+        StringBuffer hex = new StringBuffer();
+
+        for (byte b : md.digest()) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return hex.toString();
+    }
+
+}
@@ -0,0 +1,212 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+
+/** Reads and writes k-tuple profiles in a compact binary format, so
+ *  that the profile of a sequence is counted once and reused by
+ *  later runs. A file is made of a header of 64 bytes followed by a
+ *  body of longs, all big-endian:
+ *
+ *  <pre>
+ *   0  int   magic number, "KMER"
+ *   4  int   version
+ *   8  int   k
+ *  12  int   layout, 0 for dense and 1 for sparse
+ *  16  long  number of k-tuples counted (total)
+ *  24  long  number of keys (size)
+ *  32  int   length of the name of the alphabet
+ *  36  byte  name of the alphabet, up to 27 (see <code>Alphabet.valueOf</code>)
+ *  63  byte  1 if the canonical k-tuples were counted, 0 otherwise
+ *  64  long  body
+ *  </pre>
+ *
+ *  The dense body holds the counts of all the r^k keys, in order, for
+ *  an alphabet of r symbols (4 for DNA, see <code>Alphabet</code>). The
+ *  sparse body holds pairs (code, count), sorted by code. A profile
+ *  is loaded by mapping the file in memory; its table reads the
+ *  counts from the mapping.
+ */
+
+public class ProfileFile {
+
+    private static final int MAGIC = 0x4b4d4552; // "KMER"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int DENSE = 0;
+    private static final int SPARSE = 1;
+
+    /** Writes a profile to a file. The table is written in the dense
+     *  layout if it holds all the r^k keys, and in the sparse layout
+     *  otherwise.
+     *
+     * @param profile the profile
+     * @param name the name of the file
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if k is larger than maxK of the
+     * alphabet, since its keys have no code, or if the table is a
+     * sketch, which does not keep its keys
+     */
+
+    public static void write(Profile profile, String name) throws IOException {
+
+        FrequencyTable table = profile.table();
+        int k = profile.k();
+        Alphabet alphabet = profile.alphabet();
+
+        if (table instanceof SketchFrequencyTable) {
+            throw new IllegalArgumentException("a sketch does not keep its keys");
+        }
+
+        if (k > alphabet.maxK()) {
+            throw new IllegalArgumentException("k = " + k + " is larger than " + alphabet.maxK() + " for " + alphabet);
+        }
+
+        long size = table.size();
+        boolean dense = size == alphabet.size(k);
+
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(name), 1 << 16));
+
+        try {
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(k);
+            output.writeInt(dense ? DENSE : SPARSE);
+            output.writeLong(profile.total());
+            output.writeLong(size);
+            output.writeInt(alphabet.name().length());
+            output.writeBytes(alphabet.name());
+
+            for (int i=36+alphabet.name().length(); i<HEADER_SIZE-1; i++) {
+                output.writeByte(0);
+            }
+
+            output.writeByte(profile.canonical() ? 1 : 0);
+
+            if (dense) {
+
+                final IOException[] error = new IOException[1];
+
+                table.forEachCount(new CountVisitor() {
+                        public void visit(long count) {
+                            try {
+                                output.writeLong(count);
+                            } catch (IOException e) {
+                                error[0] = e;
+                            }
+                        }
+                    });
+
+                if (error[0] != null) {
+                    throw error[0];
+                }
+
+            } else {
+
+                Iterator<String> keys = table.keys().iterator();
+                long[] counts = table.values();
+
+                for (int i=0; keys.hasNext(); i++) {
+                    output.writeLong(alphabet.encode(keys.next()));
+                    output.writeLong(counts[i]);
+                }
+            }
+
+        } finally {
+            output.close();
+        }
+    }
+
+    /** Loads a profile by mapping the file in memory. The table of
+     *  the profile is read-only.
+     *
+     * @param name the name of the file
+     * @return the profile
+     * @throws IOException if an I/O error occurs, or if the file is
+     * not a profile file.
+     */
+
+    public static Profile load(String name) throws IOException {
+
+        FileChannel channel = FileChannel.open(Paths.get(name));
+
+        try {
+
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(name + ": not a profile file");
+            }
+
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(name + ": not a profile file");
+            }
+
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(name + ": unsupported version " + header.getInt(4));
+            }
+
+            int k = header.getInt(8);
+            boolean dense = header.getInt(12) == DENSE;
+            long total = header.getLong(16);
+            long size = header.getLong(24);
+
+            int characters = header.getInt(32);
+
+            if (characters < 0 || characters > HEADER_SIZE - 37) {
+                throw new IOException(name + ": unsupported alphabet");
+            }
+
+            byte[] bytes = new byte[characters];
+
+            for (int i=0; i<bytes.length; i++) {
+                bytes[i] = header.get(36 + i);
+            }
+
+            Alphabet alphabet = alphabet(new String(bytes, "US-ASCII"));
+
+            if (alphabet == null) {
+                throw new IOException(name + ": unsupported alphabet");
+            }
+
+            boolean canonical = header.get(HEADER_SIZE - 1) != 0;
+
+            long longs = dense ? size : 2 * size;
+
+            if (channel.size() < HEADER_SIZE + 8 * longs) {
+                throw new IOException(name + ": truncated profile file");
+            }
+
+            int n = (int) ((longs + MappedFrequencyTable.WINDOW_LONGS - 1) / MappedFrequencyTable.WINDOW_LONGS);
+            ByteBuffer[] windows = new ByteBuffer[n];
+
+            for (int i=0; i<n; i++) {
+                long first = (long) i * MappedFrequencyTable.WINDOW_LONGS;
+                long length = Math.min(MappedFrequencyTable.WINDOW_LONGS, longs - first);
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + 8 * first, 8 * length);
+            }
+
+            return new Profile(k, new MappedFrequencyTable(k, dense, size, windows, alphabet), total, alphabet, canonical);
+
+        } finally {
+            channel.close(); // the mappings remain valid
+        }
+    }
+
+    // Helper method. Returns the alphabet having this name, or null
+    // if there is none.
+
+    private static Alphabet alphabet(String name) {
+        try {
+            return Alphabet.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+}
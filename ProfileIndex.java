@@ -0,0 +1,434 @@
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** An index over reference profiles that finds the references closest
+ *  to a query without comparing it to all of them. The index is a
+ *  vantage-point tree: each node holds a reference, the vantage point,
+ *  and the median distance of the other references of its subtree to
+ *  it; the closer ones go to the inside subtree, the farther ones to
+ *  the outside subtree.
+ *
+ *  The k-tuple distance of <strong>Distance.compare</strong> is the
+ *  square of the Euclidean distance between the frequency vectors.
+ *  The tree is built and searched with its square root, which obeys
+ *  the triangle inequality, so a subtree can be skipped when it can
+ *  not contain a closer reference than the n best found so far. The
+ *  search is exact: it returns the same references as a linear scan.
+ */
+
+public class ProfileIndex {
+
+    // Largest number of references in a leaf, compared one by one
+
+    private static final int LEAF = 8;
+
+    // Slack on the pruning test, covering the rounding errors of the
+    // distances
+
+    private static final double EPSILON = 1e-9;
+
+    // Smallest number of queries answered by a single task
+
+    private static final int MIN_BATCH = 4;
+
+    private static class Node {
+
+        private int vantage; // the index of the vantage point, -1 for a leaf
+        private double radius; // the median distance to the vantage point
+        private Node inside; // the references at most radius away
+        private Node outside; // the references at least radius away
+        private int[] bucket; // the indices of the references of a leaf
+    }
+
+    private final Profile[] references;
+    private final double[][] vectors; // the frequencies, if all the references are dense
+    private final Node root;
+
+    /** Builds the index of the reference profiles. The references
+     *  must all have the same k; they must not be modified while the
+     *  index is in use.
+     *
+     * @param references the reference profiles
+     * @throws IllegalArgumentException if the references have different k
+     */
+
+    public ProfileIndex(Profile[] references) {
+
+        int n = references.length;
+
+        for (int i=1; i<n; i++) {
+            if (references[i].k() != references[0].k()) {
+                throw new IllegalArgumentException("k = " + references[i].k() + " and " + references[0].k());
+            }
+        }
+
+        this.references = references.clone();
+
+        // the dense profiles are normalized once, the others are
+        // compared through their tables
+
+        double[][] vectors = new double[n][];
+
+        for (int i=0; i<n; i++) {
+            if (! Distance.dense(references[i])) {
+                vectors = null;
+                break;
+            }
+            vectors[i] = references[i].normalized();
+        }
+
+        this.vectors = vectors;
+
+        int[] indices = new int[n];
+
+        for (int i=0; i<n; i++) {
+            indices[i] = i;
+        }
+
+        this.root = build(indices, 0, n, new double[n], new Random(0));
+    }
+
+    /** Returns the number of references.
+     *
+     * @return the number of references
+     */
+
+    public int size() {
+        return references.length;
+    }
+
+    /** Returns the indices of the n references closest to the query,
+     *  from the closest to the farthest. References at the same
+     *  distance are ordered by index.
+     *
+     * @param query the query profile
+     * @param n the number of references
+     * @return the indices of the n closest references, or of all the
+     * references if there are fewer than n
+     * @throws IllegalArgumentException if n is negative, or if the
+     * query does not have the same k as the references
+     */
+
+    public int[] nearest(Profile query, int n) {
+
+        if (n < 0) {
+            throw new IllegalArgumentException(Integer.toString(n));
+        }
+
+        if (references.length > 0 && query.k() != references[0].k()) {
+            throw new IllegalArgumentException("k = " + query.k());
+        }
+
+        double[] vector = vectors != null && Distance.dense(query) ? query.normalized() : null;
+
+        Heap best = new Heap(Math.min(n, references.length));
+
+        if (n > 0) {
+            search(root, query, vector, best);
+        }
+
+        return best.sorted();
+    }
+
+    /** Returns the indices of the n references closest to each of
+     *  the queries, as computed by <strong>nearest</strong>. The
+     *  queries are answered in parallel on the common
+     *  <code>ForkJoinPool</code> if parallel is true.
+     *
+     * @param queries the query profiles
+     * @param n the number of references per query
+     * @param parallel true to answer the queries in parallel
+     * @return the indices of the closest references, one array per query
+     */
+
+    public int[][] nearest(Profile[] queries, int n, boolean parallel) {
+
+        int[][] results = new int[queries.length][];
+        QueryTask task = new QueryTask(queries, n, results, 0, queries.length);
+
+        if (parallel) {
+            ForkJoinPool.commonPool().invoke(task);
+        } else {
+            task.compute();
+        }
+
+        return results;
+    }
+
+    // Answers the queries [from, to), splitting the range in halves.
+
+    private class QueryTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Profile[] queries;
+        private final int n;
+        private final int[][] results;
+        private final int from;
+        private final int to;
+
+        private QueryTask(Profile[] queries, int n, int[][] results, int from, int to) {
+            this.queries = queries;
+            this.n = n;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+
+            if (to - from <= MIN_BATCH || getPool() == null) {
+                for (int i=from; i<to; i++) {
+                    results[i] = nearest(queries[i], n);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+
+            invokeAll(new QueryTask(queries, n, results, from, middle),
+                      new QueryTask(queries, n, results, middle, to));
+        }
+    }
+
+    // Helper method. Builds the subtree of the references
+    // indices[from, to). The distances array is used as scratch
+    // space.
+
+    private Node build(int[] indices, int from, int to, double[] distances, Random random) {
+
+        if (from >= to) {
+            return null;
+        }
+
+        Node node = new Node();
+
+        if (to - from <= LEAF) {
+            node.vantage = -1;
+            node.bucket = new int[to - from];
+            System.arraycopy(indices, from, node.bucket, 0, to - from);
+            return node;
+        }
+
+        // a random vantage point, moved to the front of the range
+
+        swap(indices, distances, from, from + random.nextInt(to - from));
+        node.vantage = indices[from];
+
+        for (int i=from+1; i<to; i++) {
+            distances[i] = Math.sqrt(distance(references[node.vantage], vectors == null ? null : vectors[node.vantage], indices[i]));
+        }
+
+        // the lower half is moved before the median, the upper half
+        // after it
+
+        int middle = (from + 1 + to) >>> 1;
+
+        select(indices, distances, from+1, to-1, middle);
+
+        node.radius = distances[middle];
+        node.inside = build(indices, from+1, middle, distances, random);
+        node.outside = build(indices, middle, to, distances, random);
+
+        return node;
+    }
+
+    // Helper method. Searches the subtree for references closer than
+    // the worst of the best ones found so far.
+
+    private void search(Node node, Profile query, double[] vector, Heap best) {
+
+        if (node == null) {
+            return;
+        }
+
+        if (node.vantage < 0) {
+            for (int i=0; i<node.bucket.length; i++) {
+                best.offer(distance(query, vector, node.bucket[i]), node.bucket[i]);
+            }
+            return;
+        }
+
+        double squared = distance(query, vector, node.vantage);
+        double d = Math.sqrt(squared);
+
+        best.offer(squared, node.vantage);
+
+        if (d < node.radius) {
+            if (d - best.bound() - EPSILON <= node.radius) {
+                search(node.inside, query, vector, best);
+            }
+            if (d + best.bound() + EPSILON >= node.radius) {
+                search(node.outside, query, vector, best);
+            }
+        } else {
+            if (d + best.bound() + EPSILON >= node.radius) {
+                search(node.outside, query, vector, best);
+            }
+            if (d - best.bound() - EPSILON <= node.radius) {
+                search(node.inside, query, vector, best);
+            }
+        }
+    }
+
+    // Helper method. Returns the k-tuple distance, the squared
+    // Euclidean distance, between the profile, whose frequencies may
+    // be given, and the i-th reference.
+
+    private double distance(Profile p, double[] vector, int i) {
+
+        if (vector != null) {
+            return Distance.distance(vector, vectors[i]);
+        }
+
+        return Distance.compare(p, references[i]);
+    }
+
+    // Helper method. Rearranges indices[from, to] so that the
+    // element at position middle is the one that would be there if
+    // the range was sorted by distance, the smaller ones before it
+    // and the larger ones after it (Hoare's selection).
+
+    private static void select(int[] indices, double[] distances, int from, int to, int middle) {
+
+        while (from < to) {
+
+            double pivot = distances[(from + to) >>> 1];
+            int i = from, j = to;
+
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(indices, distances, i++, j--);
+                }
+            }
+
+            if (middle <= j) {
+                to = j;
+            } else if (middle >= i) {
+                from = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    // Helper method. Exchanges the elements i and j of both arrays.
+
+    private static void swap(int[] indices, double[] distances, int i, int j) {
+
+        int index = indices[i];
+        indices[i] = indices[j];
+        indices[j] = index;
+
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    // The n best references found so far, in a binary max-heap
+    // ordered by k-tuple distance, then by index: the root is the
+    // worst one. The references are ranked by the k-tuple distance
+    // itself, not its square root, which can round two distances to
+    // the same value.
+
+    private static class Heap {
+
+        private final double[] distances;
+        private final int[] indices;
+        private int size;
+
+        private Heap(int capacity) {
+            distances = new double[capacity];
+            indices = new int[capacity];
+            size = 0;
+        }
+
+        // Returns the Euclidean distance of the worst reference kept,
+        // or infinity while the heap is not full.
+
+        private double bound() {
+            return size < distances.length ? Double.POSITIVE_INFINITY : Math.sqrt(distances[0]);
+        }
+
+        // Keeps the reference if it is among the n best so far.
+
+        private void offer(double distance, int index) {
+
+            if (size < distances.length) {
+                int i = size++;
+                while (i > 0 && worse(distance, index, (i-1)/2)) {
+                    distances[i] = distances[(i-1)/2];
+                    indices[i] = indices[(i-1)/2];
+                    i = (i-1)/2;
+                }
+                distances[i] = distance;
+                indices[i] = index;
+                return;
+            }
+
+            if (size > 0 && better(distance, index, 0)) {
+                siftDown(distance, index);
+            }
+        }
+
+        // Replaces the root by the reference, then moves it down
+        // below the worse ones.
+
+        private void siftDown(double distance, int index) {
+
+            int i = 0;
+
+            while (2*i+1 < size) {
+                int child = 2*i+1;
+                if (child+1 < size && better(distances[child], indices[child], child+1)) {
+                    child++;
+                }
+                if (! better(distance, index, child)) {
+                    break;
+                }
+                distances[i] = distances[child];
+                indices[i] = indices[child];
+                i = child;
+            }
+
+            distances[i] = distance;
+            indices[i] = index;
+        }
+
+        // Returns true if the reference comes after the element j.
+
+        private boolean worse(double distance, int index, int j) {
+            return distance > distances[j] || (distance == distances[j] && index > indices[j]);
+        }
+
+        // Returns true if the reference comes before the element j.
+
+        private boolean better(double distance, int index, int j) {
+            return distance < distances[j] || (distance == distances[j] && index < indices[j]);
+        }
+
+        // Returns the indices, from the best to the worst; the heap is
+        // emptied.
+
+        private int[] sorted() {
+
+            int[] result = new int[size];
+
+            while (size > 0) {
+                result[size-1] = indices[0];
+                size--;
+                siftDown(distances[size], indices[size]);
+            }
+
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,399 @@
+/** Implements the interface <code>FrequencyTable</code> for DNA
+ *  k-tuples using a count-min sketch (Cormode and Muthukrishnan,
+ *  2005). The sketch is a matrix of depth rows of width counters;
+ *  each row has its own hash function, and a key is counted in one
+ *  counter of each row. The count of a key is the smallest of its
+ *  counters: it is never less than the true count, and, for a table
+ *  holding n k-tuples, it exceeds the true count by at most
+ *  epsilon * n with probability at least 1 - delta, where epsilon =
+ *  e / width and delta = e^-depth.
+ *
+ *  The memory is fixed by the width and the depth, whatever the size
+ *  of the keys or the number of k-tuples counted. The keys themselves
+ *  are not kept, so they cannot be listed or numbered:
+ *  <strong>size</strong>, <strong>keys</strong>,
+ *  <strong>values</strong> and <strong>forEachCount</strong> are not
+ *  supported. Two sketches of the same dimensions use the same hash
+ *  functions, they can be added and compared.
+ */
+
+public class SketchFrequencyTable implements EncodedFrequencyTable {
+
+    // The default dimensions: epsilon is about 4e-5, delta about 0.02
+
+    static final int DEFAULT_WIDTH = 1 << 16;
+    static final int DEFAULT_DEPTH = 4;
+
+    private final int width; // the number of counters of a row
+    private final int depth; // the number of rows
+    private final long[] counts; // the rows, one after the other
+    private final long[] seeds; // the seeds of the hash functions, one per row
+
+    /** Constructs an empty <strong>FrequencyTable</strong> of the
+     *  default dimensions.
+     */
+
+    public SketchFrequencyTable() {
+        this(DEFAULT_WIDTH, DEFAULT_DEPTH);
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> of depth
+     *  rows of width counters.
+     *
+     * @param width the number of counters of a row
+     * @param depth the number of rows
+     * @throws IllegalArgumentException if width or depth is not
+     * positive, or if the sketch does not fit in an array
+     */
+
+    public SketchFrequencyTable(int width, int depth) {
+
+        if (width < 1 || depth < 1 || (long) width * depth > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException(width + " x " + depth);
+        }
+
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[width * depth];
+        this.seeds = new long[depth];
+
+        for (int row=0; row<depth; row++) {
+            seeds[row] = (row + 1) * 0x9e3779b97f4a7c15L;
+        }
+    }
+
+    /** Returns the number of counters of a row.
+     *
+     * @return the width of the sketch
+     */
+
+    public int width() {
+        return width;
+    }
+
+    /** Returns the number of rows.
+     *
+     * @return the depth of the sketch
+     */
+
+    public int depth() {
+        return depth;
+    }
+
+    /** Returns the bound on the error of a count, relative to the
+     *  number of k-tuples counted, that is e / width.
+     *
+     * @return the relative error bound
+     */
+
+    public double epsilon() {
+        return Math.E / width;
+    }
+
+    /** Returns the probability that a count exceeds the error bound,
+     *  that is e^-depth.
+     *
+     * @return the probability of failure
+     */
+
+    public double delta() {
+        return Math.exp(-depth);
+    }
+
+    /** Not supported, the sketch does not know how many distinct
+     *  keys were counted; see <strong>width</strong> and
+     *  <strong>depth</strong> for its dimensions.
+     *
+     *  @return never
+     *  @throws UnsupportedOperationException always
+     */
+
+    public int size() {
+        throw new UnsupportedOperationException("a sketch does not keep its keys");
+    }
+
+    /** Returns an estimate of the frequency value associated with
+     *  this key, never less than the true value.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the estimated frequency associated with this key
+     *  @throws IllegalArgumentException if the key is not a k-tuple
+     *  over the alphabet A, C, G, T
+     */
+
+    public long get(String key) {
+        return get(code(key));
+    }
+
+    /** Returns an estimate of the frequency value associated with
+     *  the key having this code, never less than the true value.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the estimated frequency associated with this key
+     */
+
+    public long get(long code) {
+
+        long min = Long.MAX_VALUE;
+
+        for (int row=0; row<depth; row++) {
+            min = Math.min(min, counts[slot(row, code)]);
+        }
+
+        return min;
+    }
+
+    /** Does nothing: every key has an implicit count of zero.
+     *
+     *  @param key key with which the specified value is to be associated
+     */
+
+    public void init(String key) {
+    }
+
+    /** Does nothing: every key has an implicit count of zero.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    public void init(long code) {
+    }
+
+    /** Does nothing: every key has an implicit count of zero.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+    }
+
+    /** The method updates the frequency associated with the key by one.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key is not a k-tuple
+     *  over the alphabet A, C, G, T
+     */
+
+    public void update(String key) {
+        update(code(key));
+    }
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    public void update(long code) {
+        for (int row=0; row<depth; row++) {
+            counts[slot(row, code)]++;
+        }
+    }
+
+    /** The method decreases the frequency associated with the key by
+     *  one. The key must have been counted before.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key is not a k-tuple
+     *  over the alphabet A, C, G, T
+     *  @throws IllegalStateException if the estimated frequency is zero
+     */
+
+    public void decrement(String key) {
+        decrement(code(key));
+    }
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one. The key must have been counted
+     *  before.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalStateException if the estimated frequency is zero
+     */
+
+    public void decrement(long code) {
+
+        if (get(code) == 0) {
+            throw new IllegalStateException("count is zero");
+        }
+
+        for (int row=0; row<depth; row++) {
+            counts[slot(row, code)]--;
+        }
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. Two sketches of the same dimensions are added counter
+     *  by counter.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws IllegalArgumentException if other is a sketch of
+     *  different dimensions
+     */
+
+    public void add(FrequencyTable other) {
+
+        if (other instanceof SketchFrequencyTable) {
+
+            SketchFrequencyTable that = (SketchFrequencyTable) other;
+
+            if (! sameDimensions(that)) {
+                throw new IllegalArgumentException(that.width + " x " + that.depth);
+            }
+
+            for (int i=0; i<counts.length; i++) {
+                counts[i] += that.counts[i];
+            }
+
+            return;
+        }
+
+        Iterator<String> keys = other.keys().iterator();
+        long[] values = other.values();
+
+        for (int i=0; keys.hasNext(); i++) {
+            long code = code(keys.next());
+            for (int row=0; row<depth; row++) {
+                counts[slot(row, code)] += values[i];
+            }
+        }
+    }
+
+    /** Not supported, the sketch does not keep the keys.
+     *
+     *  @return never
+     *  @throws UnsupportedOperationException always
+     */
+
+    public List<String> keys() {
+        throw new UnsupportedOperationException("a sketch does not keep its keys");
+    }
+
+    /** Not supported, the sketch does not keep the keys.
+     *
+     *  @return never
+     *  @throws UnsupportedOperationException always
+     */
+
+    public long[] values() {
+        throw new UnsupportedOperationException("a sketch does not keep its keys");
+    }
+
+    /** Not supported, the sketch does not keep the keys.
+     *
+     *  @param visitor the visitor receiving the counts
+     *  @throws UnsupportedOperationException always
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+        throw new UnsupportedOperationException("a sketch does not keep its keys");
+    }
+
+    /** Returns an estimate of the k-tuple distance between two
+     *  sketches: the squared Euclidean distance between the
+     *  frequencies x / n and y / m of the k-tuples. The distance is
+     *  expanded as
+     *
+     *  <pre>
+     *  sum x^2 / n^2 + sum y^2 / m^2 - 2 sum x y / (n m)
+     *  </pre>
+     *
+     *  and each sum is estimated by the smallest of its values over
+     *  the rows. Each estimate exceeds the true sum by at most
+     *  epsilon, relative to the products of the totals, with
+     *  probability at least 1 - delta, so the estimate of the
+     *  distance is within 2 epsilon of the true distance with
+     *  probability at least 1 - 3 delta. Negative estimates are
+     *  rounded to zero.
+     *
+     * @param a sketch of the first sequence
+     * @param na the number of k-tuples of the first sequence
+     * @param b sketch of the second sequence
+     * @param nb the number of k-tuples of the second sequence
+     * @return the estimated k-tuple distance
+     * @throws IllegalArgumentException if the sketches have different dimensions
+     */
+
+    public static double distance(SketchFrequencyTable a, long na, SketchFrequencyTable b, long nb) {
+
+        if (! a.sameDimensions(b)) {
+            throw new IllegalArgumentException(a.width + " x " + a.depth + " and " + b.width + " x " + b.depth);
+        }
+
+        double aa = Double.MAX_VALUE, bb = Double.MAX_VALUE, ab = Double.MAX_VALUE;
+
+        for (int row=0; row<a.depth; row++) {
+
+            double xx = 0.0, yy = 0.0, xy = 0.0;
+
+            for (int i=row*a.width; i<(row+1)*a.width; i++) {
+                double x = a.counts[i], y = b.counts[i];
+                xx += x * x;
+                yy += y * y;
+                xy += x * y;
+            }
+
+            aa = Math.min(aa, xx);
+            bb = Math.min(bb, yy);
+            ab = Math.min(ab, xy);
+        }
+
+        double distance = 0.0;
+
+        if (na > 0) {
+            distance += aa / ((double) na * na);
+        }
+
+        if (nb > 0) {
+            distance += bb / ((double) nb * nb);
+        }
+
+        if (na > 0 && nb > 0) {
+            distance -= 2 * ab / ((double) na * nb);
+        }
+
+        return Math.max(0.0, distance);
+    }
+
+    // Helper method. Returns true if the sketches have the same
+    // dimensions, hence the same hash functions.
+
+    private boolean sameDimensions(SketchFrequencyTable that) {
+        return width == that.width && depth == that.depth;
+    }
+
+    // Helper method. Returns the index of the counter of the key
+    // having this code in the row.
+
+    private int slot(int row, long code) {
+        long h = code ^ seeds[row];
+        h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+        h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        h = h ^ (h >>> 33);
+        return row * width + (int) ((h >>> 1) % width);
+    }
+
+    // Helper method. Returns the code of the key.
+
+    private static long code(String key) {
+
+        long code = key == null || key.length() > Kmers.MAX_K ? -1 : Kmers.encode(key);
+
+        if (code < 0) {
+            throw new IllegalArgumentException(key);
+        }
+
+        return code;
+    }
+
+    /** Returns a <code>String</code> representation of the
+     *  dimensions of the sketch.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+        return "{sketch " + width + " x " + depth + "}";
+    }
+
+}
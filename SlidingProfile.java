@@ -0,0 +1,326 @@
+/** The k-tuple profile of a window sliding over a sequence. When the
+ *  window moves by one base, the k-tuple leaving it is decremented
+ *  and the k-tuple entering it is counted, so each step takes a
+ *  constant time, whatever the width of the window. Lowercase bases
+ *  are counted as uppercase ones; the k-tuples overlapping any other
+ *  character, such as N, are skipped. In canonical mode, a k-tuple and
+ *  its reverse complement are counted together, as in
+ *  <strong>Distance.profile</strong>. The k-tuples are read over the
+ *  <strong>Alphabet</strong> of the reference, or the one selected
+ *  in <strong>Utils</strong> if there is no reference.
+ *
+ *  If a reference profile is given, the distance between the window
+ *  and the reference is also maintained in constant time per step.
+ *  The squared Euclidean distance between the frequencies x/n of the
+ *  window and the frequencies y/m of the reference is
+ *
+ *  <pre>
+ *  sum x^2 / n^2 - 2 sum x y / (n m) + sum y^2 / m^2
+ *  </pre>
+ *
+ *  and a step changes a single count x, so it changes each sum by
+ *  one term. The sums of the window are kept exactly, as integers,
+ *  and only divided when the distance is asked for, so that rounding
+ *  errors do not build up over a long scan.
+ *
+ *  The table of the window belongs to the sliding profile, which
+ *  must be closed once it is no longer used, so that the memory of an
+ *  OFFHEAP table is released.
+ */
+
+public class SlidingProfile implements AutoCloseable {
+
+    private final int k; // the size of the k-tuples
+    private final int width; // the number of bases in the window
+    private final String s; // the sequence
+    private final FrequencyTable table; // the counts of the window
+    private final long[] codes; // the codes of the k-tuples of the window, -1 if skipped, circular
+    private final KmerWindow window; // the last k bases read
+
+    private int start; // the position of the first base of the window
+    private long total; // the number of k-tuples in the window
+
+    private long[] dense; // the counts of the reference, by code
+    private LongLongHashMap sparse; // the counts of the reference, if it is not dense
+    private long references; // the number of k-tuples of the reference
+    private double squares; // the sum of the squared frequencies of the reference
+    private long sumSquares; // the sum of the squared counts of the window
+    private long sumProducts; // the sum of the counts of the window times those of the reference
+
+    /** Constructs the profile of the first window of the sequence,
+     *  that is its first width bases, counting the canonical k-tuples
+     *  if the canonical mode is selected (see
+     *  <strong>Utils.setCanonical</strong>), over the alphabet
+     *  selected.
+     *
+     * @param k the size of the k-tuples
+     * @param width the number of bases in the window
+     * @param s the sequence
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, or if width is smaller than k or larger than
+     * the length of s
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public SlidingProfile(int k, int width, String s) {
+        this(k, width, s, null);
+    }
+
+    /** Constructs the profile of the first window of the sequence,
+     *  that is its first width bases, and its distance to the
+     *  reference. The k-tuples are counted as in the reference,
+     *  canonical if it is canonical and over its alphabet; without a
+     *  reference, as selected in <strong>Utils</strong>.
+     *
+     * @param k the size of the k-tuples
+     * @param width the number of bases in the window
+     * @param s the sequence
+     * @param reference the profile the windows are compared to, or null
+     * @throws IllegalArgumentException if k is not between 1 and maxK
+     * of the alphabet, or if width is smaller than k or larger than
+     * the length of s, or if the reference has a different k or is a
+     * sketch, which does not keep its keys
+     * @throws java.util.NoSuchElementException if s holds a character
+     * that is not a symbol, and the alphabet does not skip them
+     */
+
+    public SlidingProfile(int k, int width, String s, Profile reference) {
+
+        Alphabet alphabet = reference != null ? reference.alphabet() : Utils.getAlphabet();
+
+        if (k < 1 || k > alphabet.maxK()) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        if (width < k || width > s.length()) {
+            throw new IllegalArgumentException(Integer.toString(width));
+        }
+
+        if (reference != null && reference.k() != k) {
+            throw new IllegalArgumentException("reference has k = " + reference.k());
+        }
+
+        if (reference != null && reference.table() instanceof SketchFrequencyTable) {
+            throw new IllegalArgumentException("a sketch does not keep its keys");
+        }
+
+        this.k = k;
+        this.width = width;
+        this.s = s;
+        this.table = Distance.newTable(k, alphabet);
+        this.codes = new long[width - k + 1];
+        this.window = new KmerWindow(k, reference != null ? reference.canonical() : Utils.isCanonical(), alphabet);
+
+        if (reference != null) {
+            reference(reference);
+        }
+
+        for (int i=0; i<k-1; i++) {
+            read(i);
+        }
+
+        for (int i=0; i<codes.length; i++) {
+            codes[i] = read(i + k - 1);
+            if (codes[i] >= 0) {
+                increment(codes[i]);
+            }
+        }
+
+        start = 0;
+    }
+
+    /** Returns true if the window can move by one more base.
+     *
+     * @return true if the window does not end with the sequence
+     */
+
+    public boolean hasNext() {
+        return start + width < s.length();
+    }
+
+    /** Moves the window by one base.
+     *
+     * @throws java.util.NoSuchElementException if the window ends with the sequence
+     */
+
+    public void next() {
+
+        if (! hasNext()) {
+            throw new java.util.NoSuchElementException();
+        }
+
+        int slot = start % codes.length;
+
+        if (codes[slot] >= 0) {
+            decrement(codes[slot]);
+        }
+
+        codes[slot] = read(start + width);
+
+        if (codes[slot] >= 0) {
+            increment(codes[slot]);
+        }
+
+        start++;
+    }
+
+    /** Returns the position of the first base of the window.
+     *
+     * @return the start of the window
+     */
+
+    public int start() {
+        return start;
+    }
+
+    /** Returns the profile of the window. The table is updated as the
+     *  window moves, it must not be modified by the caller.
+     *
+     * @return the profile of the window
+     */
+
+    public Profile profile() {
+        return new Profile(k, table, total, window.alphabet(), window.canonical());
+    }
+
+    /** Releases the table of the window. The profile can not be used
+     *  afterwards.
+     */
+
+    public void close() {
+        Distance.release(table);
+    }
+
+    /** Returns the squared Euclidean distance between the frequencies
+     *  of the window and those of the reference, as computed by
+     *  <strong>Distance.compare</strong>.
+     *
+     * @return the distance to the reference
+     * @throws IllegalStateException if no reference was given
+     */
+
+    public double distance() {
+
+        if (dense == null && sparse == null) {
+            throw new IllegalStateException("no reference");
+        }
+
+        if (total == 0) {
+            return squares;
+        }
+
+        double n = total;
+
+        if (references == 0) {
+            return sumSquares / (n * n);
+        }
+
+        return sumSquares / (n * n) - 2 * sumProducts / (n * references) + squares;
+    }
+
+    // Helper method. Reads the base at position i, and returns the
+    // code of the k-tuple ending with it, or -1 if there is none.
+
+    private long read(int i) {
+        return window.push(s.charAt(i));
+    }
+
+    // Helper method. Counts the k-tuple having this code.
+
+    private void increment(long code) {
+
+        if (table instanceof EncodedFrequencyTable) {
+            ((EncodedFrequencyTable) table).update(code);
+        } else {
+            table.update(window.alphabet().decode(code, k));
+        }
+
+        if (dense != null || sparse != null) {
+            sumSquares += 2 * count(code) - 1; // (x+1)^2 - x^2, x+1 being the new count
+            sumProducts += referenceCount(code);
+        }
+
+        total++;
+    }
+
+    // Helper method. Removes the k-tuple having this code.
+
+    private void decrement(long code) {
+
+        if (dense != null || sparse != null) {
+            sumSquares -= 2 * count(code) - 1; // x^2 - (x-1)^2, x being the old count
+            sumProducts -= referenceCount(code);
+        }
+
+        if (table instanceof EncodedFrequencyTable) {
+            ((EncodedFrequencyTable) table).decrement(code);
+        } else {
+            table.decrement(window.alphabet().decode(code, k));
+        }
+
+        total--;
+    }
+
+    // Helper method. Returns the count of the k-tuple having this
+    // code in the window.
+
+    private long count(long code) {
+
+        if (table instanceof EncodedFrequencyTable) {
+            return ((EncodedFrequencyTable) table).get(code);
+        }
+
+        return table.get(window.alphabet().decode(code, k));
+    }
+
+    // Helper method. Returns the count of the k-tuple having this
+    // code in the reference.
+
+    private long referenceCount(long code) {
+
+        if (dense != null) {
+            return dense[(int) code];
+        }
+
+        return sparse.get(code);
+    }
+
+    // Helper method. Keeps the counts of the reference where they
+    // can be found by code: in an array if the reference holds all
+    // the k-tuples, in a map otherwise.
+
+    private void reference(Profile reference) {
+
+        references = reference.total();
+
+        final double scale = references == 0 ? 0 : 1.0 / references;
+
+        if (Distance.dense(reference)) {
+            dense = reference.table().values();
+        } else {
+            FrequencyTable t = reference.table();
+            sparse = new LongLongHashMap(t.size());
+            Iterator<String> keys = t.keys().iterator();
+            long[] values = t.values();
+            for (int i=0; keys.hasNext(); i++) {
+                long c = window.alphabet().encode(keys.next());
+                if (c >= 0 && values[i] != 0) {
+                    sparse.add(c, values[i]);
+                }
+            }
+        }
+
+        final double[] sum = new double[1];
+
+        reference.table().forEachCount(new CountVisitor() {
+                public void visit(long count) {
+                    double r = count * scale;
+                    sum[0] += r * r;
+                }
+            });
+
+        squares = sum[0];
+    }
+
+}
@@ -0,0 +1,411 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** Implements the interface <code>FrequencyTable</code> for DNA
+ *  k-tuples using a hash map from codes to counts. Only the keys that
+ *  were initialized or updated are stored; any other key has an
+ *  implicit count of zero. The memory therefore depends on the number
+ *  of distinct k-tuples of the sequences, not on 4^k, and k can be as
+ *  large as <strong>Kmers.MAX_K</strong>.
+ *
+ *  A table constructed for another <strong>Alphabet</strong> codes
+ *  its keys as numbers in base r for an alphabet of r symbols, and k
+ *  can be as large as <strong>maxK</strong> of the alphabet.
+ */
+
+public class SparseFrequencyTable implements EncodedFrequencyTable {
+
+    private final Alphabet alphabet; // the symbols of the keys
+    private int k; // the length of the keys, 0 until known
+    private LongLongHashMap counts; // the counts, indexed by code
+
+    /** Constructs an empty <strong>FrequencyTable</strong>. The
+     *  length of the keys is set by the first key.
+     */
+
+    public SparseFrequencyTable() {
+        this(0);
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k.
+     *
+     * @param k the size of the keys
+     * @throws IllegalArgumentException if k is larger than Kmers.MAX_K
+     */
+
+    public SparseFrequencyTable(int k) {
+        this(k, Alphabet.DNA);
+    }
+
+    /** Constructs an empty <strong>FrequencyTable</strong> for keys
+     *  of size k over the alphabet.
+     *
+     * @param k the size of the keys, 0 if it is set by the first key
+     * @param alphabet the symbols of the keys
+     * @throws IllegalArgumentException if k is larger than maxK of
+     * the alphabet
+     */
+
+    public SparseFrequencyTable(int k, Alphabet alphabet) {
+
+        if (k < 0 || k > alphabet.maxK()) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.alphabet = alphabet;
+        this.k = k;
+        counts = new LongLongHashMap();
+    }
+
+    // Constructs a table for keys of size k over the alphabet holding
+    // these counts, indexed by code. The map is not copied.
+
+    SparseFrequencyTable(int k, Alphabet alphabet, LongLongHashMap counts) {
+
+        if (k < 1 || k > alphabet.maxK()) {
+            throw new IllegalArgumentException(Integer.toString(k));
+        }
+
+        this.alphabet = alphabet;
+        this.k = k;
+        this.counts = counts;
+    }
+
+    /** The size of the frequency table, that is the number of keys
+     *  that were initialized or updated.
+     *
+     * @return the size of the frequency table
+     */
+
+    public int size() {
+        return counts.size();
+    }
+
+    /** Returns the frequency value associated with this key, 0 if the
+     *  key is absent.
+     *
+     *  @param key key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     */
+
+    public long get(String key) {
+
+        long code = code(key);
+
+        if (code < 0) {
+            return 0;
+        }
+
+        return counts.get(code);
+    }
+
+    /** Returns the frequency value associated with the key having
+     *  this code, 0 if the key is absent.
+     *
+     *  @param code code of the key whose frequency value is to be returned
+     *  @return the frequency associated with this key
+     */
+
+    public long get(long code) {
+        return counts.get(code);
+    }
+
+    /** Returns <code>true</code> if the key having this code is in
+     *  the table.
+     *
+     *  @param code code of the key
+     *  @return <code>true</code> if the key is in the table
+     */
+
+    public boolean contains(long code) {
+        return counts.containsKey(code);
+    }
+
+    /** Creates an entry in the frequency table and initializes its
+     *  count to zero. Calling this method is optional, update creates
+     *  the missing entries.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present,
+     *  or if it is not a k-tuple over the alphabet of the table
+     */
+
+    public void init(String key) {
+
+        if (key == null) {
+            throw new IllegalArgumentException("null in init");
+        }
+
+        long code = insertion(key);
+
+        if (code < 0) {
+            throw new IllegalArgumentException(key);
+        }
+
+        if (counts.containsKey(code)) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        counts.add(code, 0);
+    }
+
+    /** Creates an entry for the key having this code and
+     *  initializes its count to zero.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key was already present
+     */
+
+    public void init(long code) {
+
+        if (counts.containsKey(code)) {
+            throw new IllegalArgumentException("already in table");
+        }
+
+        counts.add(code, 0);
+    }
+
+    /** Creates an entry for each key and initializes their counts
+     *  to zero.
+     *
+     *  @param sortedKeys the keys, in increasing order
+     *  @throws IllegalArgumentException if a key was already present,
+     *  or if it is not a k-tuple over the alphabet of the table
+     */
+
+    public void initAll(Iterator<String> sortedKeys) {
+        while (sortedKeys.hasNext()) {
+            init(sortedKeys.next());
+        }
+    }
+
+    /** The method updates the frequency associated with the key by
+     *  one. An absent key is added to the table.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws IllegalArgumentException if the key is not a k-tuple
+     *  over the alphabet of the table
+     */
+
+    public void update(String key) {
+
+        long code = insertion(key);
+
+        if (code < 0) {
+            throw new IllegalArgumentException(key);
+        }
+
+        counts.add(code, 1);
+    }
+
+    /** The method updates the frequency associated with the key
+     *  having this code by one. An absent key is added to the table.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     */
+
+    public void update(long code) {
+        counts.add(code, 1);
+    }
+
+    /** The method decreases the frequency associated with the key by
+     *  one. A key whose count drops to zero stays in the table.
+     *
+     *  @param key key with which the specified value is to be associated
+     *  @throws NoSuchElementException if the key is not found
+     *  @throws IllegalStateException if the frequency is zero
+     */
+
+    public void decrement(String key) {
+
+        long code = code(key);
+
+        if (code < 0 || ! counts.containsKey(code)) {
+            throw new NoSuchElementException(key);
+        }
+
+        decrement(code);
+    }
+
+    /** The method decreases the frequency associated with the key
+     *  having this code by one. A key whose count drops to zero stays
+     *  in the table.
+     *
+     *  @param code code of the key with which the specified value is to be associated
+     *  @throws IllegalStateException if the frequency is zero
+     */
+
+    public void decrement(long code) {
+
+        if (counts.get(code) == 0) {
+            throw new IllegalStateException("count is zero");
+        }
+
+        counts.add(code, -1);
+    }
+
+    /** Adds the counts of the other table to the counts of this
+     *  table. The keys absent from this table are added.
+     *
+     *  @param other the table whose counts are to be added
+     *  @throws IllegalArgumentException if a key of other is not a
+     *  k-tuple over the alphabet of the table
+     */
+
+    public void add(FrequencyTable other) {
+
+        if (other instanceof SparseFrequencyTable
+            && ((SparseFrequencyTable) other).alphabet.letters().equals(alphabet.letters())) {
+
+            SparseFrequencyTable that = (SparseFrequencyTable) other;
+            long[] codes = that.codes();
+
+            if (k == 0) {
+                k = that.k;
+            }
+
+            for (int i=0; i<codes.length; i++) {
+                counts.add(codes[i], that.counts.get(codes[i]));
+            }
+
+            return;
+        }
+
+        Iterator<String> keys = other.keys().iterator();
+        long[] values = other.values();
+
+        for (int i=0; keys.hasNext(); i++) {
+            String key = keys.next();
+            long code = insertion(key);
+            if (code < 0) {
+                throw new IllegalArgumentException(key);
+            }
+            counts.add(code, values[i]);
+        }
+    }
+
+    /** Returns the codes of the keys of this table, in no particular
+     *  order.
+     *
+     *  @return the codes of the keys
+     */
+
+    public long[] codes() {
+        return counts.keys();
+    }
+
+    /** Returns the list of keys in order, according to the method
+     *  <strong>compareTo</strong> of the key objects.
+     *
+     *  @return the list of keys in order
+     */
+
+    public List<String> keys() {
+
+        long[] codes = sortedCodes();
+
+        List<String> keysList = new CircularArrayList<String>(codes.length);
+
+        for (int i=0; i<codes.length; i++) {
+            keysList.addLast(alphabet.decode(codes[i], k));
+        }
+
+        return keysList;
+    }
+
+    /** Returns an array containing the frequencies of the keys in the
+     *  order specified by the method <strong>compareTo</strong> of
+     *  the key objects.
+     *
+     *  @return an array of frequency counts
+     */
+
+    public long[] values() {
+
+        long[] codes = sortedCodes();
+        long[] values = new long[codes.length];
+
+        for (int i=0; i<codes.length; i++) {
+            values[i] = counts.get(codes[i]);
+        }
+
+        return values;
+    }
+
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method <strong>compareTo</strong> of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+
+        long[] codes = sortedCodes();
+
+        for (int i=0; i<codes.length; i++) {
+            visitor.visit(counts.get(codes[i]));
+        }
+    }
+
+    // Helper method. Returns the codes in increasing order, which is
+    // the lexicographic order of the keys since they all have the
+    // same length.
+
+    private long[] sortedCodes() {
+        long[] codes = counts.keys();
+        Arrays.sort(codes);
+        return codes;
+    }
+
+    // Helper method. Returns the code of the key, or -1 if the key
+    // is not a k-tuple over the alphabet of the table. A lookup does
+    // not set the length of the keys.
+
+    private long code(String key) {
+
+        if (k == 0 || key.length() != k) {
+            return -1;
+        }
+
+        return alphabet.encode(key);
+    }
+
+    // Helper method. Returns the code of a key being inserted, or -1
+    // if the key is not a k-tuple over the alphabet of the table. The
+    // first key inserted sets the length of the keys if it is not
+    // known yet.
+
+    private long insertion(String key) {
+
+        if (k == 0 && key.length() > 0 && key.length() <= alphabet.maxK()) {
+            k = key.length();
+        }
+
+        return code(key);
+    }
+
+    /** Returns a <code>String</code> representations of the elements
+     * of the frequency table.
+     *
+     *  @return the string representation
+     */
+
+    public String toString() {
+
+        long[] codes = sortedCodes();
+
+        StringBuffer str = new StringBuffer("{");
+
+        for (int i=0; i<codes.length; i++) {
+            str.append("{key="+alphabet.decode(codes[i], k)+", count="+counts.get(codes[i])+"}");
+            if (i < codes.length - 1) {
+                str.append(",");
+            }
+        }
+
+        str.append("}");
+        return str.toString();
+    }
+
+}
@@ -5,7 +5,17 @@ public class Test {
 	TestFrequencyTable.main(args);
 	TestDistance.main(args);
 	TestLinkedList.main(args);
+	TestCircularArrayList.main(args);
 	TestLinkedStack.main(args);
+	TestFastaReader.main(args);
+	TestProfileFile.main(args);
+	TestSlidingProfile.main(args);
+	TestProfileIndex.main(args);
+	TestSketchFrequencyTable.main(args);
+	TestOffHeapFrequencyTable.main(args);
+	TestMultiProfile.main(args);
+	TestAlphabet.main(args);
+	TestMetrics.main(args);
 	
     }
 
@@ -0,0 +1,129 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/** Minimalist tests for the class Alphabet.
+ */
+
+public class TestAlphabet {
+
+    public static void main(String[] args) {
+
+        long code = Alphabet.PROTEIN.encode("WAY");
+        System.out.println(code + " " + Alphabet.PROTEIN.decode(code, 3) + " " + Alphabet.PROTEIN.size(3) + " " + Alphabet.PROTEIN.maxK());
+        System.out.println(Alphabet.PROTEIN.encode("WAX") + " " + Alphabet.DNA.encode("acgt") + " " + Alphabet.DNA_N_SKIP.encode("acgt"));
+
+        // DNA: N and the lowercase bases
+
+        System.out.println(Distance.profile(3, "ACGTNacgt").total() + " " + Distance.compare(3, "ACGTNacgt", "ACGTACGT"));
+
+        Utils.setAlphabet(Alphabet.DNA);
+
+        try {
+            Distance.profile(3, "ACGTNACGT");
+            System.out.println("no exception");
+        } catch (NoSuchElementException e) {
+            System.out.println("NoSuchElementException " + e.getMessage());
+        }
+
+        // proteins
+
+        Random random = new Random(5);
+        char[] residues = new char[3000];
+
+        for (int i=0; i<residues.length; i++) {
+            residues[i] = "ACDEFGHIKLMNPQRSTVWYacdefghiklmnpqrstvwyX*".charAt(random.nextInt(i % 500 < 450 ? 20 : 42));
+        }
+
+        String a = new String(residues);
+        String b = a.substring(1000) + a.substring(0, 1000).toUpperCase();
+
+        Utils.setAlphabet(Alphabet.PROTEIN);
+
+        String[] types = {"LINEAR", "TREE", "PACKED", "SPARSE"};
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            int errors = 0;
+
+            for (int k=1; k<=3; k++) {
+                Profile expected = profile(k, a);
+                Profile p = Distance.profile(k, a);
+                if (p.total() != expected.total() || Distance.compare(p, expected) != 0.0) {
+                    errors++;
+                }
+                Distance.setParallel(true);
+                p = Distance.profile(k, a);
+                Distance.setParallel(false);
+                if (p.total() != expected.total() || Distance.compare(p, expected) != 0.0) {
+                    errors++;
+                }
+            }
+
+            System.out.println(types[t] + " errors = " + errors + " " + Distance.compare(2, a, b));
+        }
+
+        Utils.setType("SPARSE");
+        System.out.println(Distance.compare(6, a, b) + " " + Distance.profile(6, a).total());
+
+        try {
+            Utils.setType("OFFHEAP");
+            Distance.profile(3, a);
+            System.out.println("no exception");
+        } catch (IllegalArgumentException e) {
+            System.out.println("IllegalArgumentException " + e.getMessage());
+        }
+
+        try {
+            Utils.setType("PACKED");
+            Distance.compare(Distance.profile(3, a), Distance.count(3, "ACGTACGT", false, Alphabet.DNA));
+            System.out.println("no exception");
+        } catch (IllegalArgumentException e) {
+            System.out.println("IllegalArgumentException " + e.getMessage());
+        }
+
+        // a protein profile written and loaded back
+
+        try {
+            File file = File.createTempFile("protein", ".kmer");
+            file.deleteOnExit();
+            Profile p = Distance.profile(2, a);
+            ProfileFile.write(p, file.getPath());
+            Profile q = ProfileFile.load(file.getPath());
+            System.out.println(q.alphabet() + " " + q.total() + " " + Distance.compare(p, q));
+        } catch (IOException e) {
+            System.err.println(e);
+        }
+
+        Utils.setAlphabet(Alphabet.DNA_N_SKIP);
+        Utils.setType("LINEAR");
+    }
+
+    // Helper method. Counts the k-tuples of s one residue at a time.
+
+    private static Profile profile(int k, String s) {
+        KmerCounter counter = new KmerCounter(Distance.newTable(k, Alphabet.PROTEIN), k, false, Alphabet.PROTEIN);
+        for (int i=0; i<s.length(); i++) {
+            counter.push(s.charAt(i));
+        }
+        return counter.profile();
+    }
+
+}
+
+// > java TestAlphabet
+// 7219 WAY 8000 14
+// -1 -1 27
+// 4 0.11111111111111112
+// NoSuchElementException N
+// LINEAR errors = 0 2.2506400538983265E-7
+// TREE errors = 0 2.2506400538983265E-7
+// PACKED errors = 0 2.2506400538983265E-7
+// SPARSE errors = 0 2.2506400538983265E-7
+// 1.1537836720226845E-6 2944
+// IllegalArgumentException OFFHEAP tables hold DNA k-tuples only
+// IllegalArgumentException PROTEIN and DNA
+// PROTEIN 2981 0.0
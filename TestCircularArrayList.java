@@ -0,0 +1,69 @@
+/** Minimalist tests for CircularArrayList.
+ */
+
+public class TestCircularArrayList {
+
+    public static void main(String[] args) {
+
+	List<Integer> xs = new CircularArrayList<Integer>();
+	List<Integer> ys = new LinkedList<Integer>();
+
+	// the same operations are applied to both lists, the array
+	// wraps around and grows several times
+
+	for (int i=0; i<100; i++) {
+	    switch (i % 5) {
+	    case 0: xs.addFirst(i); ys.addFirst(i); break;
+	    case 1: xs.addLast(i); ys.addLast(i); break;
+	    case 2: xs.add(xs.size()/3, i); ys.add(ys.size()/3, i); break;
+	    case 3: xs.add(2*xs.size()/3, i); ys.add(2*ys.size()/3, i); break;
+	    case 4: xs.removeFirst(); ys.removeFirst(); break;
+	    }
+	    if (i % 7 == 0 && xs.size() > 0) {
+		xs.remove(xs.size()/2); ys.remove(ys.size()/2);
+	    }
+	    if (i % 11 == 0 && xs.size() > 0) {
+		xs.removeLast(); ys.removeLast();
+	    }
+	}
+
+	if (! xs.toString().equals(ys.toString())) {
+	    System.out.println("lists are not equals!");
+	    System.out.println(xs);
+	    System.out.println(ys);
+	}
+
+	for (int i=0; i<xs.size(); i++) {
+	    if (! xs.get(i).equals(ys.get(i))) {
+		System.out.println("get(" + i + ") is not equal!");
+	    }
+	}
+
+	Iterator<Integer> i = xs.iterator();
+	Iterator<Integer> j = ys.iterator();
+
+	while (i.hasNext() && j.hasNext()) {
+	    if (! i.next().equals(j.next())) {
+		System.out.println("iterators are not equals!");
+	    }
+	}
+
+	if (i.hasNext() || j.hasNext()) {
+	    System.out.println("iterators are not the same length!");
+	}
+
+	System.out.println(xs.size());
+
+	try {
+	    xs.get(xs.size());
+	    System.out.println("get(size()) should have failed");
+	} catch (IndexOutOfBoundsException e) {
+	    System.out.println(e);
+	}
+    }
+
+}
+
+// > java TestCircularArrayList
+// 36
+// java.lang.IndexOutOfBoundsException: 36
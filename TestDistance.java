@@ -25,6 +25,61 @@ public class TestDistance {
 	System.out.println(Distance.compare(5, b, d));
 	System.out.println(Distance.compare(5, c, d));
 
+	LinkedList<String> sequences = new LinkedList<String>();
+	sequences.addLast(a);
+	sequences.addLast(b);
+	sequences.addLast(c);
+	sequences.addLast(d);
+
+	double[][] matrix = DistanceMatrix.compute(5, sequences);
+
+	for (int i=0; i<sequences.size(); i++) {
+	    for (int j=0; j<sequences.size(); j++) {
+		if (matrix[i][j] != Distance.compare(5, sequences.get(i), sequences.get(j))) {
+		    System.out.println("matrix is not equal to compare at ("+i+","+j+")");
+		}
+	    }
+	}
+
+	sequences.addLast("GGTTGGTTGGTTGGTTGGTTGGTTGGTTGGTTGGTTGGTT");
+
+	double[][] screened = DistanceMatrix.compute(5, sequences, 64, 0.3);
+
+	for (int i=0; i<sequences.size(); i++) {
+	    System.out.println(java.util.Arrays.toString(screened[i]));
+	}
+
+	sequences.removeLast();
+
+	ProfileCache cache = new ProfileCache(1 << 20);
+	Distance.setCache(cache);
+
+	for (int i=0; i<sequences.size(); i++) {
+	    if (Distance.compare(5, a, sequences.get(i)) != matrix[0][i]) {
+		System.out.println("cached compare is not equal to compare at (0,"+i+")");
+	    }
+	}
+
+	System.out.println("hits = " + cache.hits() + ", misses = " + cache.misses());
+
+	Distance.setCache(null);
+
+	// the reverse complement of c, read on the other strand
+
+	StringBuffer r = new StringBuffer();
+
+	for (int i=c.length()-1; i>=0; i--) {
+	    r.append("TGCA".charAt(Kmers.code(c.charAt(i))));
+	}
+
+	System.out.println(Distance.compare(5, c, r.toString()));
+	System.out.println(Distance.compare(5, c, r.toString(), true));
+
+	Utils.setType("PACKED");
+	Distance.setParallel(true);
+	System.out.println(Distance.compare(5, c, b, true) == Distance.compare(5, r.toString(), b, true));
+	Distance.setParallel(false);
+
 	String e = null, f = null;
 	
 	try {
@@ -70,11 +125,20 @@ public class TestDistance {
 // 
 // 0.0
 // 0.009130752373995615
-// 0.031044558071585078
+// 0.031044558071585092
 // 0.008218277449046676
 // 0.008765522279035794
-// 2.4012498024971943E-5
+// 2.401249802497194E-5
 // 0.00946380572160198
+// [0.0, 0.009130752373995615, NaN, 0.008218277449046676, NaN]
+// [0.009130752373995615, 0.0, 0.008765522279035794, 2.401249802497194E-5, NaN]
+// [NaN, 0.008765522279035794, 0.0, 0.00946380572160198, NaN]
+// [0.008218277449046676, 2.401249802497194E-5, 0.00946380572160198, 0.0, NaN]
+// [NaN, NaN, NaN, NaN, 0.0]
+// hits = 4, misses = 4
+// 0.6296566837107378
+// 0.0
+// true
 // 0.0012225189741013151
 // time = 10771698130 nano seconds
 // 0.0012225189741013151
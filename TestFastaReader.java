@@ -0,0 +1,87 @@
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Minimalist tests for the class FastaReader.
+ */
+
+public class TestFastaReader {
+
+    public static void main(String[] args) {
+
+	String a = "ACACACACACACACACACACACACACACACACACACACAC";
+	String b = "ACACACACACACACACACACCACACACACACACACACACAC";
+
+	int k = 3;
+
+	try {
+
+	    File file = File.createTempFile("test", ".fasta");
+	    file.deleteOnExit();
+
+	    // two records, split over several lines, lowercase and N included
+
+	    FileWriter output = new FileWriter(file);
+	    output.write(">first record\n");
+	    output.write(a.substring(0, 20) + "\n" + a.substring(20) + "\n");
+	    output.write(">second record\r\n");
+	    output.write(b.substring(0, 15).toLowerCase() + "\r\n" + b.substring(15) + "NNNN\r\n");
+	    output.close();
+
+	    List<Profile> profiles = Utils.readProfiles(file.getPath(), k);
+	    List<Profile> mapped = Utils.mapProfiles(file.getPath(), k);
+
+	    if (profiles.size() != mapped.size()) {
+		System.out.println("mapped: wrong number of records: " + mapped.size());
+	    }
+
+	    for (int i=0; i<profiles.size() && i<mapped.size(); i++) {
+		if (! Arrays.equals(profiles.get(i).table().values(), mapped.get(i).table().values())) {
+		    System.out.println("mapped: values are not equals!");
+		}
+	    }
+
+	    if (profiles.size() != 2) {
+		System.out.println("wrong number of records: " + profiles.size());
+	    }
+
+	    Profile pa = Distance.profile(k, a);
+	    Profile pb = Distance.profile(k, b);
+
+	    if (! Arrays.equals(profiles.get(0).table().values(), pa.table().values())) {
+		System.out.println("first record: values are not equals!");
+	    }
+
+	    if (! Arrays.equals(profiles.get(1).table().values(), pb.table().values())) {
+		System.out.println("second record: values are not equals!");
+	    }
+
+	    System.out.println(Distance.compare(profiles.get(0), profiles.get(1)));
+	    System.out.println(Distance.compare(k, a, b));
+
+	    // a plain sequence, without header
+
+	    output = new FileWriter(file);
+	    output.write(a + "\n");
+	    output.close();
+
+	    FastaReader input = new FastaReader(file.getPath(), k);
+	    Profile p = input.next();
+	    input.close();
+
+	    if (! input.name().equals("") || p.total() != pa.total()) {
+		System.out.println("plain sequence not read correctly");
+	    }
+
+	} catch (IOException e) {
+	    System.out.println(e);
+	}
+
+    }
+
+}
+
+// > java TestFastaReader
+// 0.002958579881656803
+// 0.002958579881656803
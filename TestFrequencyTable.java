@@ -51,7 +51,7 @@ public class TestFrequencyTable {
 
 		StudentInfo.display();
 
-		int k = 5;
+		final int k = 5;
 
 		String s = null;
 
@@ -69,15 +69,29 @@ public class TestFrequencyTable {
 		Utils.setType("TREE");
 
 		FrequencyTable tree = Utils.getFrequencyTable();
+
+		Utils.setType("PACKED");
+
+		FrequencyTable packed = Utils.getFrequencyTable();
+
+		Utils.setType("SPARSE");
+
+		FrequencyTable sparse = Utils.getFrequencyTable();
 		
 		init(linear, k);
 		init(tree, k);
+		init(packed, k);
+		init(sparse, k);
 
 		update(linear, k, s);
 		update(tree, k, s);
+		update(packed, k, s);
+		update(sparse, k, s);
 
 		long[] xs = linear.values();
 		long[] ys = tree.values();
+		long[] zs = packed.values();
+		long[] ws = sparse.values();
 
 		if (! Arrays.equals(xs, ys)) {
 		    System.out.println("values are not equals!");
@@ -85,6 +99,98 @@ public class TestFrequencyTable {
 		    System.out.println(Arrays.toString(ys));
 		}
 
+		if (! Arrays.equals(xs, zs)) {
+		    System.out.println("packed values are not equals!");
+		    System.out.println(Arrays.toString(xs));
+		    System.out.println(Arrays.toString(zs));
+		}
+
+		if (! linear.keys().toString().equals(packed.keys().toString())) {
+		    System.out.println("packed keys are not equals!");
+		}
+
+		if (! Arrays.equals(xs, ws)) {
+		    System.out.println("sparse values are not equals!");
+		    System.out.println(Arrays.toString(xs));
+		    System.out.println(Arrays.toString(ws));
+		}
+
+		if (! linear.keys().toString().equals(sparse.keys().toString())) {
+		    System.out.println("sparse keys are not equals!");
+		}
+
+		// the tables initialized in one pass hold the same keys
+
+		Utils.setType("LINEAR");
+
+		FrequencyTable list = Utils.getFrequencyTable();
+		list.initAll(linear.keys().iterator());
+
+		Utils.setType("TREE");
+
+		FrequencyTable balanced = Utils.getFrequencyTable();
+		balanced.initAll(linear.keys().iterator());
+
+		if (! linear.keys().toString().equals(list.keys().toString())
+		    || ! linear.keys().toString().equals(balanced.keys().toString())) {
+		    System.out.println("initAll keys are not equals!");
+		}
+
+		// the concurrent table is updated by several threads at once
+
+		Utils.setType("CONCURRENT");
+
+		final FrequencyTable concurrent = Utils.getFrequencyTable();
+		final String sequence = s;
+		final int THREADS = 4;
+
+		init(concurrent, k);
+
+		Thread[] threads = new Thread[THREADS];
+
+		for (int i=0; i<THREADS; i++) {
+		    threads[i] = new Thread() {
+			    public void run() {
+				update(concurrent, k, sequence);
+			    }
+			};
+		    threads[i].start();
+		}
+
+		try {
+		    for (int i=0; i<THREADS; i++) {
+			threads[i].join();
+		    }
+		}
+		catch (InterruptedException e) {
+		    System.out.println(e);
+		}
+
+		long[] vs = concurrent.values();
+
+		for (int i=0; i<xs.length; i++) {
+		    if (vs[i] != THREADS * xs[i]) {
+			System.out.println("concurrent values are not equals!");
+			System.out.println(Arrays.toString(vs));
+			break;
+		    }
+		}
+
+		// a lookup does not set the length of the keys of a sparse
+		// table, and -1, the empty slot, is not a key
+
+		SparseFrequencyTable empty = new SparseFrequencyTable();
+
+		if (empty.get("AC") != 0 || empty.contains(-1) || new LongLongHashMap().containsKey(-1)) {
+		    System.out.println("sparse lookup is wrong!");
+		}
+
+		empty.update("ACGTA");
+
+		if (empty.get("ACGTA") != 1 || empty.keys().size() != 1) {
+		    System.out.println("sparse key length is wrong!");
+		}
+
 	}
 
 }
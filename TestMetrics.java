@@ -0,0 +1,156 @@
+import java.util.Random;
+
+/** Minimalist tests for the class Metrics.
+ */
+
+public class TestMetrics {
+
+    public static void main(String[] args) {
+
+        String a = "ACACACACACACACACACACACACACACACACACACACAC";
+        String c = "ACACACACACACACACACACCACACACACACACACACCCAC";
+
+        System.out.println(Metrics.compute(3, a, c, Metrics.ALL));
+        System.out.println(Metrics.compute(3, a, a, Metrics.COSINE | Metrics.BRAY_CURTIS));
+        System.out.println(Distance.compare(3, a, c) + " " + Metrics.compute(3, a, c, Metrics.EUCLIDEAN).get(Metrics.EUCLIDEAN));
+
+        try {
+            Metrics.compute(3, a, c, Metrics.COSINE).manhattan();
+            System.out.println("no exception");
+        } catch (IllegalStateException e) {
+            System.out.println("IllegalStateException " + e.getMessage());
+        }
+
+        Random random = new Random(7);
+        String s = random(random, 4000), t = random(random, 3000);
+
+        // every path gives the metrics computed over all the k-tuples
+
+        String[] types = {"LINEAR", "TREE", "PACKED", "SPARSE"};
+
+        for (int i=0; i<types.length; i++) {
+
+            Utils.setType(types[i]);
+
+            int errors = 0;
+
+            for (int k=1; k<=4; k++) {
+
+                Profile ps = Distance.profile(k, s), pt = Distance.profile(k, t);
+                Metrics metrics = Metrics.compute(ps, pt, Metrics.ALL);
+                double[] expected = expected(k, s, t);
+
+                for (int m=0; m<expected.length; m++) {
+                    if (Math.abs(metrics.get(1 << m) - expected[m]) > 1e-9 * Math.max(1.0, expected[m])) {
+                        errors++;
+                    }
+                }
+
+                if (Math.abs(metrics.euclidean() - Distance.compare(ps, pt)) > 1e-12) {
+                    errors++;
+                }
+            }
+
+            System.out.println(types[i] + " errors = " + errors);
+        }
+
+        Utils.setType("LINEAR");
+    }
+
+    // Helper method. Returns a random sequence with some lowercase
+    // bases and some N.
+
+    private static String random(Random random, int n) {
+
+        char[] bases = new char[n];
+
+        for (int i=0; i<n; i++) {
+            bases[i] = "AACGTTacgtN".charAt(random.nextInt(i % 100 < 95 ? 6 : 11));
+        }
+
+        return new String(bases);
+    }
+
+    // Helper method. Returns the metrics computed from their
+    // definitions, over the arrays of the counts of all the k-tuples.
+
+    private static double[] expected(int k, String s, String t) {
+
+        long[] xs = counts(k, s), ys = counts(k, t);
+        double n = 0, m = 0;
+
+        for (int i=0; i<xs.length; i++) {
+            n += xs[i];
+            m += ys[i];
+        }
+
+        // the background: the first symbols of the k-tuples, plus one
+
+        double[] background = new double[4];
+
+        for (int i=0; i<xs.length; i++) {
+            background[i >> (2 * (k - 1))] += xs[i] + ys[i];
+        }
+
+        for (int c=0; c<4; c++) {
+            background[c] = (background[c] + 1) / (n + m + 4);
+        }
+
+        double euclidean = 0, xx = 0, yy = 0, xy = 0, manhattan = 0, js = 0, differences = 0;
+        double ab = 0, aa = 0, bb = 0;
+
+        for (int i=0; i<xs.length; i++) {
+
+            double p = xs[i] / n, q = ys[i] / m, mean = (p + q) / 2;
+
+            euclidean += (p - q) * (p - q);
+            xx += (double) xs[i] * xs[i];
+            yy += (double) ys[i] * ys[i];
+            xy += (double) xs[i] * ys[i];
+            manhattan += Math.abs(p - q);
+            js += (p > 0 ? p * Math.log(p / mean) / Math.log(2) : 0) + (q > 0 ? q * Math.log(q / mean) / Math.log(2) : 0);
+            differences += Math.abs(xs[i] - ys[i]);
+
+            double w = 1.0;
+            for (int j=0; j<k; j++) {
+                w *= background[(i >> (2 * j)) & 3];
+            }
+
+            double x = xs[i] - n * w, y = ys[i] - m * w;
+            ab += x * y / (Math.sqrt(n * m) * w);
+            aa += x * x / (n * w);
+            bb += y * y / (m * w);
+        }
+
+        return new double[] {euclidean, 1 - xy / Math.sqrt(xx * yy), manhattan, Math.sqrt(js / 2), xy,
+                             (1 - ab / Math.sqrt(aa * bb)) / 2, differences / (n + m)};
+    }
+
+    // Helper method. Returns the counts of the k-tuples of s over A,
+    // C, G, T in either case, indexed by code.
+
+    private static long[] counts(int k, String s) {
+
+        long[] counts = new long[1 << (2 * k)];
+
+        for (int i=0; i+k<=s.length(); i++) {
+            long code = Kmers.encode(s.substring(i, i+k).toUpperCase());
+            if (code >= 0) {
+                counts[(int) code]++;
+            }
+        }
+
+        return counts;
+    }
+
+}
+
+// > java TestMetrics
+// {euclidean=0.01545036160420776, cosine=0.009381870528289538, manhattan=0.2564102564102564, jensenShannon=0.2604880263397515, d2=646.0, d2Star=0.004106648049470696, brayCurtis=0.11688311688311688}
+// {cosine=0.0, brayCurtis=0.0}
+// 0.015450361604207756 0.01545036160420776
+// IllegalStateException metric 4 not computed
+// LINEAR errors = 0
+// TREE errors = 0
+// PACKED errors = 0
+// SPARSE errors = 0
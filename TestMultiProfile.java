@@ -0,0 +1,156 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/** Minimalist tests for the class MultiProfile.
+ */
+
+public class TestMultiProfile {
+
+    public static void main(String[] args) {
+
+        String a = "ACACACACACACACACACACACACACACACACACACACAC";
+        String c = "ACACACACACACACACACACCACACACACACACACACCCAC";
+
+        System.out.println(Arrays.toString(MultiProfile.compare(3, 8, a, c)));
+
+        Random random = new Random(3);
+        char[] bases = new char[5000];
+
+        for (int i=0; i<bases.length; i++) {
+            bases[i] = "ACGTacgtN".charAt(random.nextInt(i % 1000 < 900 ? 4 : 9));
+        }
+
+        String s = new String(bases);
+        String[] types = {"LINEAR", "TREE", "PACKED", "SPARSE"};
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile[] profiles = MultiProfile.profiles(2, 7, s);
+            int errors = 0;
+
+            for (int k=2; k<=7; k++) {
+                Profile expected = profile(k, s);
+                Profile p = profiles[k-2];
+                if (p.k() != k || p.total() != expected.total() || Distance.compare(p, expected) != 0.0) {
+                    errors++;
+                }
+            }
+
+            System.out.println(types[t] + " errors = " + errors);
+        }
+
+        // in canonical mode, the profiles are those of Distance.profile
+
+        Utils.setCanonical(true);
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile[] profiles = MultiProfile.profiles(2, 7, s);
+            int errors = 0;
+
+            for (int k=2; k<=7; k++) {
+                Profile expected = Distance.profile(k, s);
+                Profile p = profiles[k-2];
+                if (! p.canonical() || p.total() != expected.total() || Distance.compare(p, expected) != 0.0) {
+                    errors++;
+                }
+            }
+
+            System.out.println("canonical " + types[t] + " errors = " + errors + " " + MultiProfile.compare(3, 3, s, s.substring(2500))[0]
+                               + " " + Distance.compare(3, s, s.substring(2500)));
+        }
+
+        Utils.setCanonical(false);
+
+        // over proteins, the profiles are those of Distance.profile
+
+        String protein = protein(new Random(5), 3000);
+
+        Utils.setAlphabet(Alphabet.PROTEIN);
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile[] profiles = MultiProfile.profiles(1, 4, protein);
+            int errors = 0;
+
+            for (int k=1; k<=4; k++) {
+                Profile expected = Distance.profile(k, protein);
+                Profile p = profiles[k-1];
+                if (p.alphabet() != Alphabet.PROTEIN || p.total() != expected.total() || Distance.compare(p, expected) != 0.0) {
+                    errors++;
+                }
+            }
+
+            System.out.println("PROTEIN " + types[t] + " errors = " + errors + " " + MultiProfile.compare(2, 2, protein, protein.substring(1000))[0]
+                               + " " + Distance.compare(2, protein, protein.substring(1000)));
+        }
+
+        // strict DNA rejects N, as Distance.profile does
+
+        Utils.setAlphabet(Alphabet.DNA);
+
+        try {
+            MultiProfile.profiles(2, 3, "ACGTNACGT");
+            System.out.println("no exception");
+        } catch (NoSuchElementException e) {
+            System.out.println("NoSuchElementException " + e.getMessage());
+        }
+
+        Utils.setAlphabet(Alphabet.DNA_N_SKIP);
+        Utils.setType("SPARSE");
+
+        Profile[] large = MultiProfile.profiles(14, 16, s);
+        System.out.println(Distance.compare(large[2], profile(16, s)) + " " + large[0].total() + " " + profile(14, s).total());
+
+        Utils.setType("LINEAR");
+    }
+
+    // Helper method. Returns a random protein sequence with some
+    // lowercase residues and some other characters.
+
+    private static String protein(Random random, int n) {
+
+        char[] residues = new char[n];
+
+        for (int i=0; i<n; i++) {
+            residues[i] = "ACDEFGHIKLMNPQRSTVWYacdefghiklmnpqrstvwyX*".charAt(random.nextInt(i % 500 < 450 ? 20 : 42));
+        }
+
+        return new String(residues);
+    }
+
+    // Helper method. Counts the k-tuples of s one base at a time.
+
+    private static Profile profile(int k, String s) {
+        KmerCounter counter = new KmerCounter(Distance.newTable(k), k);
+        for (int i=0; i<s.length(); i++) {
+            counter.push(s.charAt(i));
+        }
+        return counter.profile();
+    }
+
+}
+
+// > java TestMultiProfile
+// [0.015450361604207756, 0.024584740464054684, 0.031044558071585092, 0.03973796926177877, 0.05102040816326529, 0.06358171205607505]
+// LINEAR errors = 0
+// TREE errors = 0
+// PACKED errors = 0
+// SPARSE errors = 0
+// canonical LINEAR errors = 0 1.0120724356871588E-4 1.0120724356871588E-4
+// canonical TREE errors = 0 1.0120724356871588E-4 1.0120724356871588E-4
+// canonical PACKED errors = 0 1.0120724356871588E-4 1.0120724356871588E-4
+// canonical SPARSE errors = 0 1.0120724356871588E-4 1.0120724356871585E-4
+// PROTEIN LINEAR errors = 0 1.4721203432685695E-4 1.4721203432685695E-4
+// PROTEIN TREE errors = 0 1.4721203432685695E-4 1.4721203432685695E-4
+// PROTEIN PACKED errors = 0 1.4721203432685695E-4 1.4721203432685695E-4
+// PROTEIN SPARSE errors = 0 1.4721203432685695E-4 1.4721203432685708E-4
+// NoSuchElementException N
+// 0.0 4586 4586
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/** Minimalist tests for the class OffHeapFrequencyTable.
+ */
+
+public class TestOffHeapFrequencyTable {
+
+    public static void main(String[] args) {
+
+        String a = "ACACACACACACACACACACACACACACACACACACACAC";
+        String c = "ACACACACACACACACACACCACACACACACACACACCCAC";
+
+        Utils.setType("PACKED");
+
+        Profile pa = Distance.profile(5, a);
+        Profile pc = Distance.profile(5, c);
+
+        Utils.setType("OFFHEAP");
+
+        Profile oa = Distance.profile(5, a);
+        Profile oc = Distance.profile(5, c);
+
+        System.out.println(Distance.compare(oa, oc));
+        System.out.println(Distance.compare(pa, pc) == Distance.compare(oa, oc));
+        System.out.println(Arrays.equals(pa.table().values(), oa.table().values()));
+
+        // the tables counted for a single comparison, and those merged
+        // while counting in parallel, are closed by Distance
+
+        Distance.setParallel(true);
+        Profile parallel = Distance.profile(5, a);
+        Distance.setParallel(false);
+
+        System.out.println(Distance.compare(oa, parallel) + " " + (Distance.compare(5, a, c) == Distance.compare(oa, oc)));
+
+        ((OffHeapFrequencyTable) parallel.table()).close();
+
+        // and so are those of Metrics, MultiProfile and SlidingProfile
+
+        System.out.println(Metrics.compute(5, a, c, Metrics.EUCLIDEAN).euclidean() + " " + MultiProfile.compare(5, 5, a, c)[0]
+                           + " " + Distance.compare(oa, c, 20)[0]);
+
+        SlidingProfile window = new SlidingProfile(5, 20, c, oa);
+        Profile last = window.profile();
+        window.close();
+
+        try {
+            last.table().get("ACACA");
+            System.out.println("not closed");
+        } catch (IllegalStateException e) {
+            System.out.println("window " + e.getMessage());
+        }
+
+        // a cached table is owned by the cache: closing it has no effect
+
+        Distance.setCache(new ProfileCache(1 << 20));
+
+        Profile cached = Distance.profile(5, a);
+        ((OffHeapFrequencyTable) cached.table()).close();
+
+        System.out.println((Distance.profile(5, a) == cached) + " " + Distance.compare(cached, oc));
+
+        Distance.setCache(null);
+
+        // a count too large for a counter
+
+        SparseFrequencyTable huge = new SparseFrequencyTable(2);
+        huge.update("CG");
+
+        for (int i=0; i<33; i++) {
+            SparseFrequencyTable doubled = new SparseFrequencyTable(2);
+            doubled.add(huge);
+            doubled.add(huge);
+            huge = doubled;
+        }
+
+        OffHeapFrequencyTable promoted = new OffHeapFrequencyTable(2);
+        OffHeapFrequencyTable rejected = new OffHeapFrequencyTable(2, false);
+
+        for (long code=0; code<16; code++) {
+            promoted.init(code);
+            rejected.init(code);
+        }
+
+        promoted.add(huge);
+        promoted.update("CG");
+        promoted.decrement("CG");
+        promoted.decrement("CG");
+        System.out.println(promoted.get("CG") + " " + (huge.get("CG") - 1));
+
+        try {
+            rejected.add(huge);
+        } catch (IllegalStateException e) {
+            System.out.println(e);
+        }
+
+        promoted.close();
+        promoted.close();
+
+        try {
+            promoted.get("CG");
+        } catch (IllegalStateException e) {
+            System.out.println(e);
+        }
+
+        rejected.close();
+        ((OffHeapFrequencyTable) oa.table()).close();
+        ((OffHeapFrequencyTable) oc.table()).close();
+
+        Utils.setType("LINEAR");
+    }
+
+}
+
+// > java TestOffHeapFrequencyTable
+// 0.031044558071585092
+// true
+// true
+// 0.0 true
+// 0.031044558071585078 0.031044558071585092 0.0
+// window closed
+// true 0.031044558071585092
+// 8589934591 8589934591
+// java.lang.IllegalStateException: counter overflow
+// java.lang.IllegalStateException: closed
@@ -0,0 +1,96 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Minimalist tests for the class ProfileFile.
+ */
+
+public class TestProfileFile {
+
+    public static void main(String[] args) {
+
+	String a = "ACACACACACACACACACACACACACACACACACACACAC";
+	String c = "ACACACACACACACACACACCACACACACACACACACCCAC";
+
+	try {
+
+	    File file = File.createTempFile("test", ".profile");
+	    file.deleteOnExit();
+
+	    // dense layout
+
+	    Utils.setType("PACKED");
+
+	    Profile pa = Distance.profile(5, a);
+	    Profile pc = Distance.profile(5, c);
+
+	    ProfileFile.write(pa, file.getPath());
+	    Profile loaded = ProfileFile.load(file.getPath());
+
+	    if (! Arrays.equals(pa.table().values(), loaded.table().values()) || loaded.total() != pa.total()) {
+		System.out.println("dense: values are not equals!");
+	    }
+
+	    System.out.println(Distance.compare(pa, pc));
+	    System.out.println(Distance.compare(loaded, pc));
+
+	    // sparse layout
+
+	    Utils.setType("SPARSE");
+
+	    Profile sa = Distance.profile(12, a);
+	    Profile sc = Distance.profile(12, c);
+
+	    ProfileFile.write(sa, file.getPath());
+	    loaded = ProfileFile.load(file.getPath());
+
+	    if (! Arrays.equals(sa.table().values(), loaded.table().values())
+		|| ! sa.table().keys().toString().equals(loaded.table().keys().toString())) {
+		System.out.println("sparse: values are not equals!");
+	    }
+
+	    System.out.println(Distance.compare(sa, sc));
+	    System.out.println(Distance.compare(loaded, sc));
+
+	    // the alphabet and the canonical mode are kept
+
+	    Utils.setType("PACKED");
+	    Utils.setCanonical(true);
+
+	    Profile canonical = Distance.profile(5, c);
+
+	    ProfileFile.write(canonical, file.getPath());
+	    loaded = ProfileFile.load(file.getPath());
+
+	    System.out.println(loaded.alphabet() + " " + loaded.canonical() + " " + Distance.compare(loaded, canonical));
+
+	    Utils.setCanonical(false);
+
+	    // the k-tuples larger than maxK have no code
+
+	    FrequencyTable t = new LinearFrequencyTable();
+	    t.init(a.substring(0, 32));
+	    t.update(a.substring(0, 32));
+
+	    try {
+		ProfileFile.write(new Profile(32, t, 1), file.getPath());
+		System.out.println("no exception");
+	    } catch (IllegalArgumentException e) {
+		System.out.println("IllegalArgumentException " + e.getMessage());
+	    }
+
+	} catch (IOException e) {
+	    System.out.println(e);
+	}
+
+    }
+
+}
+
+// > java TestProfileFile
+// 0.031044558071585092
+// 0.031044558071585092
+// 0.14388954947813462
+// 0.1438895494781345
+// DNA_N_SKIP true 0.0
+// IllegalArgumentException k = 32 is larger than 31 for DNA
@@ -0,0 +1,124 @@
+import java.util.Random;
+
+/** Minimalist tests for the class SketchFrequencyTable.
+ */
+
+public class TestSketchFrequencyTable {
+
+    public static void main(String[] args) {
+
+        Random random = new Random(7);
+
+        String a = sequence(random, 200000);
+        String b = a.substring(0, 100000) + sequence(random, 100000);
+
+        Utils.setType("SPARSE");
+
+        Profile sa = Distance.profile(12, a);
+        Profile sb = Distance.profile(12, b);
+
+        Utils.setType("SKETCH");
+        Utils.setSketch(1 << 14, 5);
+
+        Profile ka = Distance.profile(12, a);
+        Profile kb = Distance.profile(12, b);
+
+        SketchFrequencyTable sketch = (SketchFrequencyTable) ka.table();
+
+        // the estimated counts are never too small
+
+        SparseFrequencyTable exact = (SparseFrequencyTable) sa.table();
+        long[] codes = exact.codes();
+        int under = 0, over = 0;
+
+        for (int i=0; i<codes.length; i++) {
+            long estimate = sketch.get(codes[i]);
+            if (estimate < exact.get(codes[i])) {
+                under++;
+            } else if (estimate > exact.get(codes[i]) + sketch.epsilon() * sa.total()) {
+                over++;
+            }
+        }
+
+        System.out.println("under = " + under + ", over the bound = " + over);
+
+        double d = Distance.compare(sa, sb);
+        double estimate = Distance.compare(ka, kb);
+
+        System.out.println(sketch + " within 2 epsilon: " + (Math.abs(d - estimate) <= 2 * sketch.epsilon()));
+
+        // two halves counted separately, then merged
+
+        Profile first = Distance.profile(12, a.substring(0, 100011));
+        Profile second = Distance.profile(12, a.substring(100000));
+        first.table().add(second.table());
+
+        System.out.println("merged equals whole: " + (Distance.compare(new Profile(12, first.table(), ka.total()), ka) == 0.0));
+
+        try {
+            Distance.compare(ka, sa);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e);
+        }
+
+        try {
+            ka.table().keys();
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e);
+        }
+
+        try {
+            ka.table().size();
+        } catch (UnsupportedOperationException e) {
+            System.out.println(e);
+        }
+
+        // the entry points that need the keys reject a sketch
+
+        try {
+            ProfileFile.write(ka, "sketch.kmer");
+            System.out.println("no exception");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e);
+        } catch (java.io.IOException e) {
+            System.out.println(e);
+        }
+
+        try {
+            ka.normalized();
+            System.out.println("no exception");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e);
+        }
+
+        try {
+            Distance.compare(ka, a.substring(0, 1000), 100);
+            System.out.println("no exception");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e);
+        }
+
+        Utils.setSketch(1 << 16, 4);
+        Utils.setType("LINEAR");
+    }
+
+    private static String sequence(Random random, int length) {
+        char[] bases = new char[length];
+        for (int i=0; i<length; i++) {
+            bases[i] = "ACGT".charAt(random.nextInt(4));
+        }
+        return new String(bases);
+    }
+
+}
+
+// > java TestSketchFrequencyTable
+// under = 0, over the bound = 0
+// {sketch 16384 x 5} within 2 epsilon: true
+// merged equals whole: true
+// java.lang.IllegalArgumentException: a sketch can only be compared to a sketch
+// java.lang.UnsupportedOperationException: a sketch does not keep its keys
+// java.lang.UnsupportedOperationException: a sketch does not keep its keys
+// java.lang.IllegalArgumentException: a sketch does not keep its keys
+// java.lang.IllegalArgumentException: a sketch does not keep its keys
+// java.lang.IllegalArgumentException: a sketch does not keep its keys
@@ -0,0 +1,132 @@
+/** Minimalist tests for the class SlidingProfile.
+ */
+
+public class TestSlidingProfile {
+
+    public static void main(String[] args) {
+
+        String reference = "ACACACACACACACACACACCACACACACACACACACACAC";
+        String s = "ACACACACACACACACACACCACACACACACACACACCCACNNACGTacgtACGTTTGACACACACACAC";
+
+        String[] types = {"LINEAR", "TREE", "PACKED", "SPARSE"};
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile p = Distance.profile(3, reference);
+            double[] distances = Distance.compare(p, s, 12);
+
+            for (int i=0; i<distances.length; i++) {
+                double expected = Distance.compare(p, profile(3, s.substring(i, i+12)));
+                if (Math.abs(distances[i] - expected) > 1e-12) {
+                    System.out.println(types[t] + ": window " + i + " is " + distances[i] + ", expected " + expected);
+                }
+            }
+
+            System.out.println(types[t] + " " + distances[0] + " " + distances[distances.length-1]);
+        }
+
+        // in canonical mode, the windows are counted as the reference
+
+        Utils.setCanonical(true);
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile p = Distance.profile(3, reference);
+            double[] distances = Distance.compare(p, s, 12);
+
+            for (int i=0; i<distances.length; i++) {
+                double expected = Distance.compare(p, Distance.profile(3, s.substring(i, i+12)));
+                if (Math.abs(distances[i] - expected) > 1e-12) {
+                    System.out.println("canonical " + types[t] + ": window " + i + " is " + distances[i] + ", expected " + expected);
+                }
+            }
+
+            System.out.println("canonical " + types[t] + " " + distances[0] + " " + distances[distances.length-1]);
+        }
+
+        Utils.setCanonical(false);
+
+        // over proteins, the windows are read as the reference
+
+        String protein = "MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQAPILSRVGDGTQDNLSGAEKAVQVKVKALPDAQFEVVHSLAKWKRQTLGQHDFSAGEGLYTHMKALRPDEDRLSPLHSVYVDQWDWERVMGDGERQFSTLKSTVEAIWAGIKATEAAVSEEFGLAPFLPDQIHFVHSQELLSRYPDLDAKGRERAIAKDLGAVFLVGIGGKLSDGHRHDVRAPDYDDWUAIGWMLNE";
+        String sequence = protein.substring(60) + "xx" + protein.substring(0, 60).toLowerCase();
+
+        Utils.setAlphabet(Alphabet.PROTEIN);
+
+        for (int t=0; t<types.length; t++) {
+
+            Utils.setType(types[t]);
+
+            Profile p = Distance.profile(2, protein);
+            double[] distances = Distance.compare(p, sequence, 30);
+
+            for (int i=0; i<distances.length; i++) {
+                double expected = Distance.compare(p, Distance.profile(2, sequence.substring(i, i+30)));
+                if (Math.abs(distances[i] - expected) > 1e-12) {
+                    System.out.println("PROTEIN " + types[t] + ": window " + i + " is " + distances[i] + ", expected " + expected);
+                }
+            }
+
+            System.out.println("PROTEIN " + types[t] + " " + distances[0] + " " + distances[distances.length-1]);
+        }
+
+        // strict DNA rejects N, as Distance.profile does
+
+        Utils.setAlphabet(Alphabet.DNA);
+
+        try {
+            new SlidingProfile(2, 6, "ACGTNACGT");
+            System.out.println("no exception");
+        } catch (java.util.NoSuchElementException e) {
+            System.out.println("NoSuchElementException " + e.getMessage());
+        }
+
+        Utils.setAlphabet(Alphabet.DNA_N_SKIP);
+        Utils.setType("LINEAR");
+
+        SlidingProfile window = new SlidingProfile(2, 4, "ACGTA");
+        System.out.println(window.profile().table());
+        window.next();
+        System.out.println(window.profile().table());
+
+        try {
+            window.next();
+        } catch (java.util.NoSuchElementException e) {
+            System.out.println(e);
+        }
+    }
+
+    // Helper method. Counts the k-tuples of s one base at a time,
+    // skipping those overlapping a character other than A, C, G, T.
+
+    private static Profile profile(int k, String s) {
+        KmerCounter counter = new KmerCounter(Distance.newTable(k), k);
+        for (int i=0; i<s.length(); i++) {
+            counter.push(s.charAt(i));
+        }
+        return counter.profile();
+    }
+
+}
+
+// > java TestSlidingProfile
+// LINEAR 0.00295857988165682 0.00295857988165682
+// TREE 0.00295857988165682 0.00295857988165682
+// PACKED 0.00295857988165682 0.00295857988165682
+// SPARSE 0.00295857988165682 0.00295857988165682
+// canonical LINEAR 0.00295857988165682 0.00295857988165682
+// canonical TREE 0.00295857988165682 0.00295857988165682
+// canonical PACKED 0.00295857988165682 0.00295857988165682
+// canonical SPARSE 0.00295857988165682 0.00295857988165682
+// PROTEIN LINEAR 0.02602752651503238 0.032250451813738035
+// PROTEIN TREE 0.02602752651503238 0.032250451813738035
+// PROTEIN PACKED 0.02602752651503238 0.032250451813738035
+// PROTEIN SPARSE 0.02602752651503238 0.032250451813738035
+// NoSuchElementException N
+// {{key=AA, count=0},{key=AC, count=1},{key=AG, count=0},{key=AT, count=0},{key=CA, count=0},{key=CC, count=0},{key=CG, count=1},{key=CT, count=0},{key=GA, count=0},{key=GC, count=0},{key=GG, count=0},{key=GT, count=1},{key=TA, count=0},{key=TC, count=0},{key=TG, count=0},{key=TT, count=0}}
+// {{key=AA, count=0},{key=AC, count=0},{key=AG, count=0},{key=AT, count=0},{key=CA, count=0},{key=CC, count=0},{key=CG, count=1},{key=CT, count=0},{key=GA, count=0},{key=GC, count=0},{key=GG, count=0},{key=GT, count=1},{key=TA, count=1},{key=TC, count=0},{key=TG, count=0},{key=TT, count=0}}
+// java.util.NoSuchElementException
@@ -1,7 +1,9 @@
 import java.util.NoSuchElementException;
 
 /** Implements the interface <code>FrequencyTable</code> using a
- *  binary search tree.
+ *  binary search tree. The tree is kept balanced (AVL) so that its
+ *  height remains logarithmic whatever the order of the keys given to
+ *  init.
  *
  * @author Marcel Turcotte (turcott@eecs.uottawa.ca)
  */
@@ -15,6 +17,7 @@ public class TreeFrequencyTable implements FrequencyTable {
     
         private String key;
         private long count;
+        private int height; // height of the subtree rooted at this element
     
         private Elem left;
         private Elem right;
@@ -22,6 +25,7 @@ public class TreeFrequencyTable implements FrequencyTable {
         private Elem(String key) {
             this.key = key;
             this.count = 0;
+            this.height = 1;
             left = null;
             right = null;
         }
@@ -29,8 +33,6 @@ public class TreeFrequencyTable implements FrequencyTable {
 
     private Elem root = null; // A reference to the root element
     private int size = 0; // The size of the tree
-    private LinkedList<String> keysList; //stores all the strings
-    private long[] countList; //stores all the numbers 
 
     /** The size of the frequency table.
      *
@@ -45,71 +47,201 @@ public class TreeFrequencyTable implements FrequencyTable {
      *  count to zero.
      *
      * @param key key with which the specified value is to be associated
+     * @throws IllegalArgumentException if the key was already present
      */
   
     public void init(String key) {
         if (key==null)
             throw new IllegalArgumentException("null in init");
-        if (root==null)
-            root=new Elem(key);
-
-        boolean flag = false;
-        Elem current = root; 
-        
-        while(!flag){    
-            if(key.compareTo(current.key)==0){
-                flag = true;
-                //throw new IllegalArgumentException("already in table -> in init");
-            }        
-            else if (key.compareTo(current.key)<0){
-                if (current.left==null){
-                    current.left=new Elem(key);
-                    flag=true; //element was placed, can stop iterating through tree
-                }
-                else 
-                    current=current.left;
-            }
-            else if (key.compareTo(current.key)>0){
-                if(current.right==null){
-                    current.right=new Elem(key);
-                    flag=true;
-                }
-                else
-                    current=current.right;
-            }
-            
-            
-        } //end while loop
+
+        root = insert(root, key);
         size++;
-    
     }
-  
-    /** The method updates the frequency associed with the key by one.
+
+    // Helper method. Inserts the key in the subtree rooted at current
+    // and returns the new root of the subtree, rebalanced.
+
+    private Elem insert(Elem current, String key) {
+
+        if (current==null)
+            return new Elem(key);
+
+        int test = key.compareTo(current.key);
+
+        if (test==0)
+            throw new IllegalArgumentException("already in table");
+        else if (test<0)
+            current.left=insert(current.left, key);
+        else
+            current.right=insert(current.right, key);
+
+        return balance(current);
+    }
+
+    /** Creates an entry for each key and initializes their counts
+     *  to zero. When the table is empty, a perfectly balanced tree is
+     *  built from the sorted keys, in linear time; otherwise each key
+     *  is inserted with <strong>init</strong>.
      *
-     * @param key key with which the specified value is to be associated
+     * @param sortedKeys the keys, in increasing order
+     * @throws IllegalArgumentException if the keys are not in
+     * increasing order, or if a key was already present
      */
-  
-    public void update(String key) {
+
+    public void initAll(Iterator<String> sortedKeys) {
+
+        if (root!=null) {
+            while (sortedKeys.hasNext())
+                init(sortedKeys.next());
+            return;
+        }
+
+        List<String> keys = new CircularArrayList<String>();
+
+        while (sortedKeys.hasNext()) {
+            String key = sortedKeys.next();
+            if (key==null)
+                throw new IllegalArgumentException("null in initAll");
+            if (keys.size()>0 && keys.get(keys.size()-1).compareTo(key)>=0)
+                throw new IllegalArgumentException("keys not in order");
+            keys.addLast(key);
+        }
+
+        root = build(keys, 0, keys.size());
+        size = keys.size();
+    }
+
+    // Helper method. Returns a balanced tree holding the keys from
+    // position from (inclusive) to position to (exclusive).
+
+    private static Elem build(List<String> keys, int from, int to) {
+
+        if (from>=to)
+            return null;
+
+        int middle = (from+to) >>> 1;
+
+        Elem current = new Elem(keys.get(middle));
+        current.left = build(keys, from, middle);
+        current.right = build(keys, middle+1, to);
+        fixHeight(current);
+
+        return current;
+    }
+
+    // Helper method. Returns the height of the subtree, 0 if empty.
+
+    private static int height(Elem current) {
+        return current==null ? 0 : current.height;
+    }
+
+    // Helper method. Recomputes the height of the element from the
+    // heights of its children.
+
+    private static void fixHeight(Elem current) {
+        current.height = 1 + Math.max(height(current.left), height(current.right));
+    }
+
+    // Helper method. Rotates the subtree to the right and returns its
+    // new root.
+
+    private static Elem rotateRight(Elem current) {
+        Elem pivot = current.left;
+        current.left = pivot.right;
+        pivot.right = current;
+        fixHeight(current);
+        fixHeight(pivot);
+        return pivot;
+    }
+
+    // Helper method. Rotates the subtree to the left and returns its
+    // new root.
+
+    private static Elem rotateLeft(Elem current) {
+        Elem pivot = current.right;
+        current.right = pivot.left;
+        pivot.left = current;
+        fixHeight(current);
+        fixHeight(pivot);
+        return pivot;
+    }
+
+    // Helper method. Restores the AVL property at this element,
+    // assuming both subtrees are balanced, and returns the new root
+    // of the subtree.
+
+    private static Elem balance(Elem current) {
+
+        fixHeight(current);
+
+        int factor = height(current.left) - height(current.right);
+
+        if (factor > 1) {
+            if (height(current.left.left) < height(current.left.right))
+                current.left = rotateLeft(current.left);
+            return rotateRight(current);
+        }
+
+        if (factor < -1) {
+            if (height(current.right.right) < height(current.right.left))
+                current.right = rotateRight(current.right);
+            return rotateLeft(current);
+        }
+
+        return current;
+    }
+
+    // Helper method. Returns the element holding the key, or null.
+
+    private Elem find(String key) {
         Elem current=root;
-        boolean flag=false;
-        int counter=0;
 
-        while(counter<size){
-            if (key.compareTo(current.key)==0){
-                current.count++; 
-                flag=true;
-            }
-            else if (key.compareTo(current.key)<0)
+        while (current!=null) {
+            int test=key.compareTo(current.key);
+            if (test==0)
+                return current;
+            else if (test<0)
                 current=current.left;
             else
                 current=current.right;
-            
-
-            counter++;
         }
-        if (flag==false)
+
+        return null;
+    }
+  
+    /** The method updates the frequency associed with the key by one.
+     *
+     * @param key key with which the specified value is to be associated
+     * @throws NoSuchElementException if the key is not found
+     */
+  
+    public void update(String key) {
+        Elem current=find(key);
+
+        if (current==null)
             throw new NoSuchElementException("not in table -> in update method");
-    
+
+        current.count++;
+    }
+
+    /**
+     * Decreases the count associated with this key by one.
+     *
+     * @param key value to look for
+     * @throws NoSuchElementException if the key is not found
+     * @throws IllegalStateException if the count is zero
+     */
+
+    public void decrement(String key) {
+        Elem current=find(key);
+
+        if (current==null)
+            throw new NoSuchElementException("not in table -> in decrement method");
+
+        if (current.count==0)
+            throw new IllegalStateException("count is zero");
+
+        current.count--;
     }
   
     /**
@@ -121,46 +253,57 @@ public class TreeFrequencyTable implements FrequencyTable {
      */
   
     public long get(String key) {
-        Elem current=root;
-        int counter=0;
+        Elem current=find(key);
 
-        while(counter<size){
-            if (key.compareTo(current.key)==0){
-                return current.count;
-            }
-            else if (key.compareTo(current.key)<0)
-                current=current.left;
-            else
-                current=current.right;
+        if (current==null)
+            throw new NoSuchElementException("not in table -> in get method");
 
-            counter++;
-        }
+        return current.count;
+    }
+  
+    /** Adds the counts of the other table to the counts of this
+     *  table.
+     *
+     * @param other the table whose counts are to be added
+     * @throws NoSuchElementException if a key of other is not found
+     */
 
-        throw new NoSuchElementException("not in table -> in get method");
+    public void add(FrequencyTable other) {
+        Iterator<String> keys = other.keys().iterator();
+        long[] counts = other.values();
 
+        for (int i=0; keys.hasNext(); i++) {
+            String key = keys.next();
+            Elem current=find(key);
+            if (current==null)
+                throw new NoSuchElementException(key);
+            current.count+=counts[i];
+        }
     }
-  
+
     /** Returns the list of keys in order, according to the method compareTo of the key
      *  objects.
      *
      *  @return the list of keys in order
      */
 
-    public LinkedList<String> keys() {
-        keysList = new LinkedList<String>(); 
+    public List<String> keys() {
+        List<String> keysList = new CircularArrayList<String>(size); 
 
-        inOrder1(root);
-
-        return keysList; 
+        LinkedStack<Elem> stack = new LinkedStack<Elem>();
+        Elem current = root;
 
-    }
-
-    public void inOrder1(Elem current){
-        if (current!=null){
-            inOrder1(current.left);
+        while (current!=null || !stack.isEmpty()) {
+            while (current!=null) { //go down to the smallest key of the subtree
+                stack.push(current);
+                current=current.left;
+            }
+            current=stack.pop();
             keysList.addLast(current.key);
-            inOrder1(current.right);
+            current=current.right;
         }
+
+        return keysList; 
     }
 
     /** Returns the values in the order specified by the method compareTo of the key
@@ -170,21 +313,43 @@ public class TreeFrequencyTable implements FrequencyTable {
      */
 
     public long[] values() {
+        long[] countList = new long[size];
         int counter=0; 
-        countList = new long[size];
 
-        inOrder2(root,counter);
+        LinkedStack<Elem> stack = new LinkedStack<Elem>();
+        Elem current = root;
 
-        return countList;
+        while (current!=null || !stack.isEmpty()) {
+            while (current!=null) { //go down to the smallest key of the subtree
+                stack.push(current);
+                current=current.left;
+            }
+            current=stack.pop();
+            countList[counter++]=current.count;
+            current=current.right;
+        }
 
+        return countList;
     }
 
-    public void inOrder2(Elem current, int counter){
-        if (current!=null){
-            inOrder2(current.left, counter);
-            countList[counter]=current.count;
-            counter++;
-            inOrder2(current.right,counter);
+    /** Passes the counts to the visitor, in the order specified by
+     *  the method compareTo of the key objects.
+     *
+     *  @param visitor the visitor receiving the counts
+     */
+
+    public void forEachCount(CountVisitor visitor) {
+        LinkedStack<Elem> stack = new LinkedStack<Elem>();
+        Elem current = root;
+
+        while (current!=null || !stack.isEmpty()) {
+            while (current!=null) { //go down to the smallest key of the subtree
+                stack.push(current);
+                current=current.left;
+            }
+            current=stack.pop();
+            visitor.visit(current.count);
+            current=current.right;
         }
     }
 
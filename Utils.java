@@ -1,4 +1,7 @@
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
 
 /** Helper methods for this assignment.
  *
@@ -7,8 +10,20 @@ import java.io.*;
 
 public class Utils {
 
+    // Size of the windows of a memory-mapped file; a single mapping
+    // cannot exceed 2 GB
+
+    private static final long WINDOW_SIZE = 1L << 30;
+
     private static String type = "LINEAR";
 
+    private static boolean canonical = false;
+
+    private static Alphabet alphabet = Alphabet.DNA_N_SKIP;
+
+    private static int sketchWidth = SketchFrequencyTable.DEFAULT_WIDTH;
+    private static int sketchDepth = SketchFrequencyTable.DEFAULT_DEPTH;
+
     /** The method is used to specify the type of object to be
      * returned by the method getFrequencyTable.
      *
@@ -21,13 +36,112 @@ public class Utils {
 	    throw new NullPointerException();
 	}
 
-	if (! value.equals("LINEAR") && ! value.equals("TREE")) {
+	if (! value.equals("LINEAR") && ! value.equals("TREE") && ! value.equals("PACKED")
+	    && ! value.equals("SPARSE") && ! value.equals("CONCURRENT") && ! value.equals("SKETCH")
+	    && ! value.equals("OFFHEAP")) {
 	    throw new IllegalArgumentException(value);
 	}
 
 	type = value;	
     }
 
+    /** Returns the type of object returned by the method
+     * getFrequencyTable.
+     *
+     * @return the type of object returned by the method getFrequencyTable
+     */
+
+    public static String getType() {
+	return type;
+    }
+
+    /** The method is used to specify the dimensions of the sketches
+     * returned by the method getFrequencyTable when the type is
+     * SKETCH. The counts are within e / width of the number of
+     * k-tuples of their true values with probability 1 - e^-depth.
+     *
+     * @param width the number of counters of a row of the sketches
+     * @param depth the number of rows of the sketches
+     * @throws IllegalArgumentException if width or depth is not positive
+     */
+
+    public static void setSketch(int width, int depth) {
+
+	if (width < 1 || depth < 1) {
+	    throw new IllegalArgumentException(width + " x " + depth);
+	}
+
+	sketchWidth = width;
+	sketchDepth = depth;
+    }
+
+    /** The method is used to select the canonical counting mode, in
+     * which a k-tuple and its reverse complement are counted
+     * together, so that the profiles do not depend on the strand the
+     * sequences were read from. The mode applies to the tables
+     * filled by <strong>Distance</strong> and by
+     * <strong>readProfiles</strong>.
+     *
+     * @param value true to count the canonical k-tuples
+     */
+
+    public static void setCanonical(boolean value) {
+	canonical = value;
+    }
+
+    /** Returns true if the canonical counting mode is selected.
+     *
+     * @return true if the canonical k-tuples are counted
+     */
+
+    public static boolean isCanonical() {
+	return canonical;
+    }
+
+    /** The method is used to select the alphabet of the sequences
+     * counted by <strong>Distance</strong> and by
+     * <strong>readProfiles</strong>. The default alphabet is
+     * DNA_N_SKIP: the bases A, C, G, T in either case, the k-tuples
+     * overlapping any other character being skipped.
+     *
+     * @param value the alphabet
+     */
+
+    public static void setAlphabet(Alphabet value) {
+
+	if (value == null) {
+	    throw new NullPointerException();
+	}
+
+	alphabet = value;
+    }
+
+    /** Returns the alphabet of the sequences.
+     *
+     * @return the alphabet
+     */
+
+    public static Alphabet getAlphabet() {
+	return alphabet;
+    }
+
+    /** Returns the type of object returned by the method
+     * getFrequencyTable, with the dimensions of the sketches when the
+     * type is SKETCH. Two tables with the same description count the
+     * same way.
+     *
+     * @return the description of the objects returned by the method getFrequencyTable
+     */
+
+    static String describeType() {
+
+	if (type.equals("SKETCH")) {
+	    return type + " " + sketchWidth + " x " + sketchDepth + " " + alphabet;
+	}
+
+	return type + " " + alphabet;
+    }
+
     /** A factory method returning an object implementing the
      * interface FrequencyTable. The actual type depends on the
      * current selection.
@@ -41,11 +155,67 @@ public class Utils {
 	    return new LinearFrequencyTable();
 	} else if (type.equals("TREE")) {
 	    return new TreeFrequencyTable();
+	} else if (type.equals("PACKED")) {
+	    return new PackedFrequencyTable();
+	} else if (type.equals("SPARSE")) {
+	    return new SparseFrequencyTable();
+	} else if (type.equals("CONCURRENT")) {
+	    return new ConcurrentFrequencyTable();
+	} else if (type.equals("SKETCH")) {
+	    return new SketchFrequencyTable(sketchWidth, sketchDepth);
+	} else if (type.equals("OFFHEAP")) {
+	    return new OffHeapFrequencyTable();
 	} else {
 	    throw new AssertionError(); // can't happen
 	}
     }
 
+    /** A factory method returning an object implementing the
+     * interface FrequencyTable for keys of size k. The actual type
+     * depends on the current selection; the tables that index their
+     * keys by code are allocated for this size.
+     *
+     * @param k the size of the keys
+     * @return an object implementing the interface FrequencyTable
+     */
+    
+    public static FrequencyTable getFrequencyTable(int k) {
+	return getFrequencyTable(k, alphabet);
+    }
+
+    /** A factory method returning an object implementing the
+     * interface FrequencyTable for keys of size k over the
+     * alphabet. The actual type depends on the current selection;
+     * the tables that index their keys by code are allocated for this
+     * size. The packed and sparse tables encode the keys of any
+     * alphabet, the other tables indexed by code hold DNA keys only.
+     *
+     * @param k the size of the keys
+     * @param alphabet the alphabet of the keys
+     * @return an object implementing the interface FrequencyTable
+     * @throws IllegalArgumentException if the type of table does not
+     * support the alphabet
+     */
+
+    public static FrequencyTable getFrequencyTable(int k, Alphabet alphabet) {
+
+	if (! alphabet.isNucleotide() && (type.equals("CONCURRENT") || type.equals("OFFHEAP") || type.equals("SKETCH"))) {
+	    throw new IllegalArgumentException(type + " tables hold DNA k-tuples only");
+	}
+
+	if (type.equals("PACKED")) {
+	    return new PackedFrequencyTable(k, alphabet);
+	} else if (type.equals("SPARSE")) {
+	    return new SparseFrequencyTable(k, alphabet);
+	} else if (type.equals("CONCURRENT")) {
+	    return new ConcurrentFrequencyTable(k);
+	} else if (type.equals("OFFHEAP")) {
+	    return new OffHeapFrequencyTable(k);
+	} else {
+	    return getFrequencyTable();
+	}
+    }
+
     /** Reads a file and returns its content as a String.
      *
      * @param name the name of the file
@@ -73,4 +243,87 @@ public class Utils {
         return buffer.toString();
     }
 
+    /** Reads a FASTA file, or a file containing a single sequence,
+     * and returns the k-tuple profile of each record. The sequences
+     * are counted as they are read, they are never held in memory.
+     *
+     * @param name the name of the file
+     * @param k the size of the k-tuples
+     * @return the list of profiles, one per record
+     * @throws IOException if an I/O error occurs.
+     */
+
+    public static List<Profile> readProfiles(String name, int k) throws IOException {
+
+        List<Profile> profiles = new CircularArrayList<Profile>();
+        FastaReader input = new FastaReader(name, k);
+
+        try {
+            while (input.hasNext()) {
+                profiles.addLast(input.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            input.close();
+        }
+
+        return profiles;
+    }
+
+    /** Maps a file in memory, read-only. Files larger than a single
+     * mapping allows are mapped as several consecutive windows.
+     *
+     * @param name the name of the file
+     * @return the windows, in the order of the file
+     * @throws IOException if an I/O error occurs.
+     */
+
+    public static MappedByteBuffer[] map(String name) throws IOException {
+
+        FileChannel channel = FileChannel.open(Paths.get(name));
+
+        try {
+
+            long size = channel.size();
+            int n = (int) ((size + WINDOW_SIZE - 1) / WINDOW_SIZE);
+
+            MappedByteBuffer[] windows = new MappedByteBuffer[n];
+
+            for (int i=0; i<n; i++) {
+                long position = i * WINDOW_SIZE;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+            }
+
+            return windows;
+
+        } finally {
+            channel.close(); // the mappings remain valid
+        }
+    }
+
+    /** Maps a FASTA file, or a file containing a single sequence, in
+     * memory and returns the k-tuple profile of each record. The
+     * bytes of the file are scanned in place, without decoding them
+     * to characters or building a String; this is the input path of
+     * choice for large files.
+     *
+     * @param name the name of the file
+     * @param k the size of the k-tuples
+     * @return the list of profiles, one per record
+     * @throws IOException if an I/O error occurs.
+     */
+
+    public static List<Profile> mapProfiles(String name, int k) throws IOException {
+
+        List<Profile> profiles = new CircularArrayList<Profile>();
+        FastaReader input = new FastaReader(map(name), k);
+
+        while (input.hasNext()) {
+            profiles.addLast(input.next());
+        }
+
+        return profiles;
+    }
+
 }